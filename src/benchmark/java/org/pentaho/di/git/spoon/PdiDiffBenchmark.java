@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon;
+
+import static org.pentaho.di.git.spoon.PdiDiff.*;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+
+/**
+ * Compare the previous {@link PdiDiff#compareSteps}, which looked up steps linearly and compared full XML,
+ * with the current one on synthetic transformations, where every 10th step is renamed in the other version.
+ * Both directions are compared as in {@link GitController#visualdiff()}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class PdiDiffBenchmark {
+
+  @Param( { "1000", "5000" } )
+  public int steps;
+
+  private TransMeta transMeta1;
+  private TransMeta transMeta2;
+
+  @Setup( Level.Trial )
+  public void setUp() throws KettleException {
+    KettleClientEnvironment.getInstance().setClient( KettleClientEnvironment.ClientType.CARTE );
+    KettleEnvironment.init();
+    transMeta1 = createTransMeta( steps, "" );
+    transMeta2 = createTransMeta( steps, "renamed" );
+  }
+
+  /**
+   * Drop statuses of the previous invocation
+   */
+  @Setup( Level.Invocation )
+  public void clearAttributes() {
+    transMeta1.getSteps().forEach( step -> step.getAttributesMap().remove( ATTR_GIT ) );
+    transMeta2.getSteps().forEach( step -> step.getAttributesMap().remove( ATTR_GIT ) );
+  }
+
+  @Benchmark
+  public TransMeta linear() {
+    compareStepsLinear( transMeta1, transMeta2, true );
+    return compareStepsLinear( transMeta2, transMeta1, false );
+  }
+
+  @Benchmark
+  public TransMeta indexed() {
+    Map<Object, String> fingerprints = new IdentityHashMap<Object, String>();
+    compareSteps( transMeta1, transMeta2, true, fingerprints );
+    return compareSteps( transMeta2, transMeta1, false, fingerprints );
+  }
+
+  private static TransMeta createTransMeta( int size, String renamed ) {
+    TransMeta transMeta = new TransMeta();
+    for ( int i = 0; i < size; i++ ) {
+      String name = "Step " + i + ( i % 10 == 0 ? renamed : "" );
+      StepMeta step = new StepMeta( name, new DummyTransMeta() );
+      step.setLocation( i % 100 * 50, i / 100 * 50 );
+      transMeta.addStep( step );
+    }
+    return transMeta;
+  }
+
+  /**
+   * {@link PdiDiff#compareSteps} before the hash index and fingerprints
+   */
+  private static TransMeta compareStepsLinear( TransMeta transMeta1, TransMeta transMeta2, boolean isForward ) {
+    transMeta1.getSteps().forEach( step -> {
+      Optional<StepMeta> step2 = transMeta2.getSteps().stream()
+          .filter( obj -> step.getName().equals( obj.getName() ) ).findFirst();
+      String status = null;
+      if ( step2.isPresent() ) {
+        Map<String, String> tmp = null, tmp2 = null;
+        try {
+          tmp = step.getAttributesMap().remove( ATTR_GIT );
+          tmp2 = step2.get().getAttributesMap().remove( ATTR_GIT );
+          if ( step.getXML().equals( step2.get().getXML() ) ) {
+            status = UNCHANGED;
+          } else {
+            status = CHANGED;
+          }
+        } catch ( KettleException e ) {
+          e.printStackTrace();
+        } finally {
+          step.setAttributes( ATTR_GIT, tmp );
+          step2.get().setAttributes( ATTR_GIT, tmp2 );
+        }
+      } else {
+        if ( isForward ) {
+          status = REMOVED;
+        } else {
+          status = ADDED;
+        }
+      }
+      step.setAttribute( ATTR_GIT, ATTR_STATUS, status.toString() );
+    } );
+    return transMeta1;
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand.ResetType;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.ui.repository.pur.repositoryexplorer.model.UIRepositoryObjectRevisions;
+
+/**
+ * Measure the hot paths of {@link UIGit} on a synthetic local repository.
+ * The first commit adds all the KTR files, every later commit modifies one of them,
+ * and then a tenth of the files are modified and a few untracked ones are added to the working tree.
+ * Caches are cleared per invocation so that the cost of a cold refresh is measured.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class UIGitBenchmark {
+
+  @Param( { "100", "1000" } )
+  public int commits;
+
+  @Param( { "100", "1000" } )
+  public int files;
+
+  @Param( { "10", "100" } )
+  public int steps;
+
+  private File directory;
+  private Git git;
+  private UIGit uiGit;
+  private String firstCommitId;
+  private String headCommitId;
+  private String file;
+  private List<String> paths;
+
+  @Setup( Level.Trial )
+  public void setUp() throws Exception {
+    directory = Files.createTempDirectory( "git-benchmark" ).toFile();
+    git = Git.init().setDirectory( directory ).call();
+    Repository repository = git.getRepository();
+    TestRepository<Repository> testRepository = new TestRepository<Repository>( repository );
+    try {
+      TestRepository<Repository>.CommitBuilder builder = testRepository.branch( Constants.MASTER ).commit();
+      for ( int i = 0; i < files; i++ ) {
+        builder.add( getPath( i ), createKtr( i, 0 ) );
+      }
+      RevCommit commit = builder.message( "Initial commit" ).create();
+      firstCommitId = commit.getName();
+      for ( int i = 1; i < commits; i++ ) {
+        commit = testRepository.branch( Constants.MASTER ).commit()
+          .add( getPath( i % files ), createKtr( i % files, i ) )
+          .message( "Commit " + i ).create();
+      }
+      headCommitId = commit.getName();
+    } finally {
+      testRepository.getRevWalk().close();
+    }
+    git.reset().setMode( ResetType.HARD ).call();
+
+    for ( int i = 0; i < files; i += 10 ) {
+      FileUtils.write( new File( directory, getPath( i ) ), createKtr( i, -1 ) );
+    }
+    for ( int i = 0; i < 10; i++ ) {
+      FileUtils.write( new File( directory, "untracked/" + getPath( i ) ), createKtr( i, -1 ) );
+    }
+    file = getPath( ( commits - 1 ) % files );
+    paths = new ArrayList<String>();
+    for ( int i = 0; i < files; i++ ) {
+      paths.add( getPath( i ) );
+    }
+
+    uiGit = new UIGit();
+    uiGit.setGit( git );
+    uiGit.setDirectory( directory.getPath() );
+  }
+
+  @TearDown( Level.Trial )
+  public void tearDown() throws IOException {
+    git.close();
+    FileUtils.deleteDirectory( directory );
+  }
+
+  @Setup( Level.Invocation )
+  public void clearCaches() {
+    uiGit.invalidateStatus();
+    uiGit.getDiffCache().clear();
+    uiGit.getCommitCache().clear();
+  }
+
+  @Benchmark
+  public UIRepositoryObjectRevisions getRevisions() {
+    return uiGit.getRevisions();
+  }
+
+  @Benchmark
+  public List<UIFile> getUnstagedFiles() {
+    return uiGit.getUnstagedFiles();
+  }
+
+  @Benchmark
+  public List<UIFile> getStagedFilesBetweenCommits() {
+    return uiGit.getStagedFiles( firstCommitId, headCommitId );
+  }
+
+  @Benchmark
+  public String diff() {
+    return uiGit.diff( firstCommitId, headCommitId, file );
+  }
+
+  @Benchmark
+  public byte[] open() throws IOException {
+    try ( InputStream in = uiGit.open( file, headCommitId ) ) {
+      return IOUtils.toByteArray( in );
+    }
+  }
+
+  @Benchmark
+  public long openAll() throws IOException {
+    long[] size = new long[1];
+    uiGit.open( paths, headCommitId, ( path, content ) -> size[0] += IOUtils.toByteArray( content ).length );
+    return size[0];
+  }
+
+  private static String getPath( int i ) {
+    return "dir" + i % 10 + "/trans" + i + ".ktr";
+  }
+
+  /**
+   * Create a KTR-like XML, whose steps differ by revision (negative for a change in the working tree)
+   */
+  private String createKtr( int index, int revision ) {
+    StringBuilder sb = new StringBuilder();
+    sb.append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<transformation>\n" );
+    sb.append( "  <info>\n    <name>trans" ).append( index ).append( "</name>\n  </info>\n" );
+    for ( int i = 0; i < steps; i++ ) {
+      sb.append( "  <step>\n    <name>Step " ).append( i ).append( "</name>\n" );
+      sb.append( "    <type>Dummy</type>\n" );
+      String description = revision < 0 ? "modified" : i == revision % steps ? "revision " + revision : "";
+      sb.append( "    <description>" ).append( description ).append( "</description>\n" );
+      sb.append( "    <GUI>\n      <xloc>" ).append( i % 10 * 50 ).append( "</xloc>\n      <yloc>" )
+        .append( i / 10 * 50 ).append( "</yloc>\n    </GUI>\n  </step>\n" );
+    }
+    sb.append( "</transformation>\n" );
+    return sb.toString();
+  }
+}
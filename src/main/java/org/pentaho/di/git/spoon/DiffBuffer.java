@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only text of a patch kept in fixed-size chunks with an index of line starts,
+ * so that any line can be pulled out without building one contiguous copy of the whole patch.
+ * The patch can be streamed in through {@link Appendable}.
+ * Lines are delimited by "\n"; carriage returns are dropped.
+ */
+public class DiffBuffer implements Appendable {
+
+  static final int CHUNK_SIZE = 1 << 16;
+
+  private final List<char[]> chunks = new ArrayList<char[]>();
+  private int length = 0;
+  private int[] lineStarts = new int[256];
+  private int lineCount = 1;
+
+  public DiffBuffer() {
+  }
+
+  public DiffBuffer( CharSequence text ) {
+    append( text );
+  }
+
+  @Override
+  public DiffBuffer append( CharSequence text ) {
+    return append( text, 0, text.length() );
+  }
+
+  @Override
+  public DiffBuffer append( CharSequence text, int start, int end ) {
+    for ( int i = start; i < end; i++ ) {
+      append( text.charAt( i ) );
+    }
+    return this;
+  }
+
+  @Override
+  public DiffBuffer append( char c ) {
+    if ( c == '\r' ) {
+      return this;
+    }
+    if ( length % CHUNK_SIZE == 0 && length / CHUNK_SIZE == chunks.size() ) {
+      chunks.add( new char[CHUNK_SIZE] );
+    }
+    chunks.get( length / CHUNK_SIZE )[length % CHUNK_SIZE] = c;
+    length++;
+    if ( c == '\n' ) {
+      if ( lineCount == lineStarts.length ) {
+        lineStarts = Arrays.copyOf( lineStarts, lineCount * 2 );
+      }
+      lineStarts[lineCount++] = length;
+    }
+    return this;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  /**
+   * @return the number of lines, which is one more than the number of delimiters
+   */
+  public int getLineCount() {
+    return lineCount;
+  }
+
+  public int getLineStart( int line ) {
+    if ( line < 0 || line >= lineCount ) {
+      throw new IndexOutOfBoundsException( "line " + line );
+    }
+    return lineStarts[line];
+  }
+
+  /**
+   * @param offset from 0 to {@link #length()}
+   * @return the index of the line containing the offset
+   */
+  public int getLineAtOffset( int offset ) {
+    if ( offset < 0 || offset > length ) {
+      throw new IndexOutOfBoundsException( "offset " + offset );
+    }
+    int index = Arrays.binarySearch( lineStarts, 0, lineCount, offset );
+    return index >= 0 ? index : -index - 2;
+  }
+
+  /**
+   * @param line
+   * @return the line without the delimiter
+   */
+  public String getLine( int line ) {
+    int start = getLineStart( line );
+    int end = line + 1 < lineCount ? lineStarts[line + 1] - 1 : length;
+    return substring( start, end );
+  }
+
+  public String substring( int start, int end ) {
+    if ( start < 0 || end > length || start > end ) {
+      throw new IndexOutOfBoundsException( start + "-" + end );
+    }
+    StringBuilder sb = new StringBuilder( end - start );
+    int offset = start;
+    while ( offset < end ) {
+      int chunkOffset = offset % CHUNK_SIZE;
+      int count = Math.min( end - offset, CHUNK_SIZE - chunkOffset );
+      sb.append( chunks.get( offset / CHUNK_SIZE ), chunkOffset, count );
+      offset += count;
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.custom.StyledTextContent;
+import org.eclipse.swt.custom.TextChangeListener;
+import org.eclipse.swt.custom.TextChangedEvent;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Text;
+import org.pentaho.ui.xul.components.XulTextbox;
+
+/**
+ * A read-only StyledText that takes the place of the diff textbox.
+ * Setting a whole patch to a plain Text copies it into the native widget at once,
+ * whereas this viewer pulls only the lines it paints from a {@link DiffBuffer}
+ * and colors added, removed, and hunk header lines as they are painted.
+ */
+public class DiffViewer {
+
+  private final StyledText styledText;
+  private final DiffContent content = new DiffContent();
+  private final Color addedColor;
+  private final Color removedColor;
+  private final Color hunkColor;
+  private final Color metaColor;
+
+  public DiffViewer( XulTextbox textbox ) {
+    Text original = (Text) textbox.getManagedObject();
+    styledText = new StyledText( original.getParent(), SWT.MULTI | SWT.READ_ONLY | SWT.H_SCROLL | SWT.V_SCROLL | SWT.BORDER );
+    styledText.setContent( content );
+    styledText.setFont( JFaceResources.getFont( JFaceResources.TEXT_FONT ) );
+    addedColor = new Color( styledText.getDisplay(), 0, 128, 0 );
+    removedColor = new Color( styledText.getDisplay(), 192, 0, 0 );
+    hunkColor = new Color( styledText.getDisplay(), 0, 96, 160 );
+    metaColor = new Color( styledText.getDisplay(), 128, 128, 128 );
+
+    // Take the place of the textbox
+    if ( original.getLayoutData() instanceof GridData ) {
+      GridData data = (GridData) original.getLayoutData();
+      GridData copy = new GridData( data.horizontalAlignment, data.verticalAlignment,
+          data.grabExcessHorizontalSpace, data.grabExcessVerticalSpace, data.horizontalSpan, data.verticalSpan );
+      copy.widthHint = data.widthHint;
+      copy.heightHint = data.heightHint;
+      styledText.setLayoutData( copy );
+      data.exclude = true;
+    } else {
+      styledText.setLayoutData( original.getLayoutData() );
+    }
+    styledText.moveAbove( original );
+    original.setVisible( false );
+    styledText.getParent().layout();
+
+    // Called only for the lines being painted
+    styledText.addLineStyleListener( event -> {
+      Color color = getColor( event.lineText );
+      if ( color != null ) {
+        StyleRange style = new StyleRange( event.lineOffset, event.lineText.length(), color, null );
+        event.styles = new StyleRange[] { style };
+      }
+    } );
+    styledText.addListener( SWT.Dispose, event -> {
+      addedColor.dispose();
+      removedColor.dispose();
+      hunkColor.dispose();
+      metaColor.dispose();
+    } );
+  }
+
+  public void setDiff( String diff ) {
+    content.setText( diff == null ? "" : diff );
+  }
+
+  /**
+   * @param diff taken as is without copying
+   */
+  public void setDiff( DiffBuffer diff ) {
+    content.setBuffer( diff == null ? new DiffBuffer() : diff );
+  }
+
+  public StyledText getStyledText() {
+    return styledText;
+  }
+
+  private Color getColor( String line ) {
+    if ( line.startsWith( "+++" ) || line.startsWith( "---" ) || line.startsWith( "\\" ) ) {
+      return metaColor;
+    } else if ( line.startsWith( "+" ) ) {
+      return addedColor;
+    } else if ( line.startsWith( "-" ) ) {
+      return removedColor;
+    } else if ( line.startsWith( "@@" ) ) {
+      return hunkColor;
+    } else if ( line.startsWith( "diff " ) || line.startsWith( "index " ) || line.startsWith( "Index: " ) ) {
+      return metaColor;
+    }
+    return null;
+  }
+
+  /**
+   * Read-only content backed by a {@link DiffBuffer}
+   */
+  private static class DiffContent implements StyledTextContent {
+
+    private DiffBuffer buffer = new DiffBuffer();
+    private final List<TextChangeListener> listeners = new ArrayList<TextChangeListener>();
+
+    @Override
+    public void addTextChangeListener( TextChangeListener listener ) {
+      listeners.add( listener );
+    }
+
+    @Override
+    public void removeTextChangeListener( TextChangeListener listener ) {
+      listeners.remove( listener );
+    }
+
+    @Override
+    public int getCharCount() {
+      return buffer.length();
+    }
+
+    @Override
+    public String getLine( int lineIndex ) {
+      return buffer.getLine( lineIndex );
+    }
+
+    @Override
+    public int getLineAtOffset( int offset ) {
+      return buffer.getLineAtOffset( offset );
+    }
+
+    @Override
+    public int getLineCount() {
+      return buffer.getLineCount();
+    }
+
+    @Override
+    public String getLineDelimiter() {
+      return "\n";
+    }
+
+    @Override
+    public int getOffsetAtLine( int lineIndex ) {
+      return buffer.getLineStart( lineIndex );
+    }
+
+    @Override
+    public String getTextRange( int start, int length ) {
+      return buffer.substring( start, start + length );
+    }
+
+    @Override
+    public void replaceTextRange( int start, int replaceLength, String text ) {
+      // Read-only
+    }
+
+    @Override
+    public void setText( String text ) {
+      setBuffer( new DiffBuffer( text ) );
+    }
+
+    void setBuffer( DiffBuffer buffer ) {
+      this.buffer = buffer;
+      TextChangedEvent event = new TextChangedEvent( this );
+      new ArrayList<TextChangeListener>( listeners ).forEach( listener -> listener.textSet( event ) );
+    }
+  }
+}
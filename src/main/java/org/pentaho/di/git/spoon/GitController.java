@@ -20,7 +20,11 @@ import java.io.File;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -38,18 +42,25 @@ import org.eclipse.jface.window.Window;
 import org.eclipse.jgit.diff.DiffEntry.ChangeType;
 import org.eclipse.jgit.errors.RepositoryNotFoundException;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.ScrollBar;
 import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Table;
 import org.eclipse.swt.widgets.Text;
 import org.pentaho.di.base.AbstractMeta;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.EngineMetaInterface;
 import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.logging.LogChannel;
 import org.pentaho.di.git.spoon.dialog.DeleteBranchDialog;
+import org.pentaho.di.git.spoon.dialog.DiagnosticsDialog;
 import org.pentaho.di.git.spoon.model.GitRepository;
+import org.pentaho.di.git.spoon.model.LruCache;
 import org.pentaho.di.git.spoon.model.SVN;
 import org.pentaho.di.git.spoon.model.UIFile;
 import org.pentaho.di.git.spoon.model.UIGit;
+import org.pentaho.di.git.spoon.model.VcsMetrics;
 import org.pentaho.di.git.spoon.model.IVCS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.job.JobMeta;
@@ -86,6 +97,17 @@ import com.google.common.annotations.VisibleForTesting;
 public class GitController extends AbstractXulEventHandler {
 
   private static final Class<?> PKG = GitController.class;
+  @VisibleForTesting
+  static final int REVISION_PAGE_SIZE = 100;
+  @VisibleForTesting
+  static final int META_CACHE_SIZE = 16;
+  /**
+   * Set to "Y" (e.g., in kettle.properties) to show the revision and changed-file tables in {@link VirtualTable}s
+   * rather than binding them to XUL trees
+   */
+  private static final String VIRTUAL_TABLES = "KETTLE_GIT_VIRTUAL_TABLES";
+  private static final String METRICS = "KETTLE_GIT_METRICS";
+  private static final String STYLED_DIFF = "KETTLE_GIT_STYLED_DIFF";
 
   private IVCS vcs;
   private String path;
@@ -93,10 +115,15 @@ public class GitController extends AbstractXulEventHandler {
   private String commitMessage;
   private List<UIRepositoryObjectRevision> selectedRevisions;
   private List<UIFile> selectedChangedFiles;
+  private UIRepositoryObjectRevisions revisions;
+  private boolean hasMoreRevisions;
+  private final LruCache<String, AbstractMeta> metaCache = new LruCache<String, AbstractMeta>( META_CACHE_SIZE );
 
   private XulTree revisionTable;
   private XulTree changedTable;
   private XulTreeCol checkboxCol;
+  private VirtualTable<UIRepositoryObjectRevision> revisionVirtualTable;
+  private VirtualTable<UIFile> changedVirtualTable;
   private XulMenuitem addToIndexMenuItem;
   private XulMenuitem rmFromIndexMenuItem;
   private XulMenuitem discardMenuItem;
@@ -108,20 +135,32 @@ public class GitController extends AbstractXulEventHandler {
   private XulTextbox authorNameTextbox;
   private XulTextbox commitMessageTextbox;
 
+  private OperationScheduler scheduler = new OperationScheduler();
   private BindingFactory bf = new SwtBindingFactory();
   private Binding revisionBinding;
   private Binding changedBinding;
   private Binding branchBinding;
+  private String branchStatus;
   private Binding diffBinding;
+  private DiffViewer diffViewer;
+  private boolean fullDiff = false;
 
   public GitController() {
     setName( "gitController" );
   }
 
+  public void setScheduler( OperationScheduler scheduler ) {
+    this.scheduler = scheduler;
+  }
+
   public void init() throws IllegalArgumentException, InvocationTargetException, XulException {
     XulTextbox diffText = (XulTextbox) document.getElementById( "diff" );
-    Text text = (Text) diffText.getManagedObject();
-    text.setFont( JFaceResources.getFont( JFaceResources.TEXT_FONT ) );
+    if ( "N".equalsIgnoreCase( System.getProperty( STYLED_DIFF, "Y" ) ) ) {
+      Text text = (Text) diffText.getManagedObject();
+      text.setFont( JFaceResources.getFont( JFaceResources.TEXT_FONT ) );
+    } else {
+      diffViewer = new DiffViewer( diffText );
+    }
 
     revisionTable = (XulTree) document.getElementById( "revision-table" );
     changedTable = (XulTree) document.getElementById( "changed-table" );
@@ -129,52 +168,128 @@ public class GitController extends AbstractXulEventHandler {
     addToIndexMenuItem = (XulMenuitem) document.getElementById( "menuitem-addtoindex" );
     rmFromIndexMenuItem = (XulMenuitem) document.getElementById( "menuitem-rmfromindex" );
     discardMenuItem = (XulMenuitem) document.getElementById( "menuitem-discard" );
-    /*
-     * Add a listener to add/reset file upon checking/unchecking changed files
-     */
-    TableViewer tv = (TableViewer) changedTable.getManagedObject();
-    tv.getColumnViewerEditor().addEditorActivationListener( new ColumnViewerEditorActivationListener() {
-      @Override
-      public void beforeEditorDeactivated( ColumnViewerEditorDeactivationEvent event ) {
+    commitButton = (XulButton) document.getElementById( "commit" );
+    pullButton = (XulButton) document.getElementById( "pull" );
+    pushButton = (XulButton) document.getElementById( "push" );
+    branchButton = (XulButton) document.getElementById( "branch" );
+    tagButton = (XulButton) document.getElementById( "tag" );
+    if ( !"Y".equalsIgnoreCase( System.getProperty( VIRTUAL_TABLES, "N" ) ) ) {
+      /*
+       * Add a listener to add/reset file upon checking/unchecking changed files
+       */
+      TableViewer tv = (TableViewer) changedTable.getManagedObject();
+      tv.getColumnViewerEditor().addEditorActivationListener( new ColumnViewerEditorActivationListener() {
+        @Override
+        public void beforeEditorDeactivated( ColumnViewerEditorDeactivationEvent event ) {
+        }
+        @Override
+        public void beforeEditorActivated( ColumnViewerEditorActivationEvent event ) {
+          ViewerCell viewerCell = (ViewerCell) event.getSource();
+          SwtTreeItem selectedItem = (SwtTreeItem) viewerCell.getElement();
+          toggleStaged( (UIFile) selectedItem.getBoundObject() );
+        }
+
+        @Override
+        public void afterEditorDeactivated( ColumnViewerEditorDeactivationEvent event ) {
+          try {
+            refreshChangedFiles();
+          } catch ( Exception e ) {
+            e.printStackTrace();
+          }
+        }
+
+        @Override
+        public void afterEditorActivated( ColumnViewerEditorActivationEvent event ) {
+        }
+      } );
+      /*
+       * Load the next page of revisions when scrolled close to the bottom
+       */
+      ScrollBar revisionScrollBar = ( (TableViewer) revisionTable.getManagedObject() ).getTable().getVerticalBar();
+      if ( revisionScrollBar != null ) {
+        revisionScrollBar.addListener( SWT.Selection, event -> {
+          if ( revisionScrollBar.getSelection() + revisionScrollBar.getThumb() * 2 >= revisionScrollBar.getMaximum() ) {
+            loadMoreRevisions();
+          }
+        } );
       }
-      @Override
-      public void beforeEditorActivated( ColumnViewerEditorActivationEvent event ) {
-        ViewerCell viewerCell = (ViewerCell) event.getSource();
-        SwtTreeItem selectedItem = (SwtTreeItem) viewerCell.getElement();
-        UIFile file = (UIFile) selectedItem.getBoundObject();
+    } else {
+      revisionVirtualTable = new VirtualTable<UIRepositoryObjectRevision>( revisionTable );
+      revisionVirtualTable.setSelectionListener( selected -> {
         try {
-          if ( file.getIsStaged() ) {
-            vcs.resetPath( file.getName() );
-          } else {
-            if ( file.getChangeType() == ChangeType.DELETE ) {
-              vcs.rm( file.getName() );
-            } else {
-              vcs.add( file.getName() );
-            }
-          }
+          setSelectedRevisions( selected );
         } catch ( Exception e ) {
           e.printStackTrace();
         }
-      }
-
-      @Override
-      public void afterEditorDeactivated( ColumnViewerEditorDeactivationEvent event ) {
+      } );
+      revisionVirtualTable.setDataListener( this::revisionMaterialized );
+      changedVirtualTable = new VirtualTable<UIFile>( changedTable );
+      changedVirtualTable.setSelectionListener( selected -> {
         try {
-          changedBinding.fireSourceChanged();
+          setSelectedChangedFiles( selected );
         } catch ( Exception e ) {
           e.printStackTrace();
         }
-      }
+      } );
+      changedVirtualTable.setCheckListener( this::changedFileChecked );
+    }
+  }
+
+  /**
+   * Load the next page of revisions when a row close to the bottom is materialized.
+   * Rows must not be added while one is being materialized, so it is loaded later.
+   * @param index
+   */
+  @VisibleForTesting
+  void revisionMaterialized( int index ) {
+    if ( isNearLastRevision( index ) ) {
+      asyncExec( () -> {
+        if ( isNearLastRevision( index ) ) { // Not loaded by an earlier request
+          loadMoreRevisions();
+        }
+      } );
+    }
+  }
+
+  /**
+   * Add/reset a file upon checking/unchecking it in the changed-file {@link VirtualTable}
+   * @param file
+   */
+  @VisibleForTesting
+  void changedFileChecked( UIFile file ) {
+    if ( isOnlyWIP() ) { // The checkbox column is editable only for the working tree
+      toggleStaged( file );
+    }
+    try {
+      refreshChangedFiles();
+    } catch ( Exception e ) {
+      e.printStackTrace();
+    }
+  }
+
+  @VisibleForTesting
+  void asyncExec( Runnable runnable ) {
+    getShell().getDisplay().asyncExec( runnable );
+  }
 
-      @Override
-      public void afterEditorActivated( ColumnViewerEditorActivationEvent event ) {
+  /**
+   * Add/reset a file upon checking/unchecking it in the changed-file table
+   * @param file
+   */
+  private void toggleStaged( UIFile file ) {
+    try {
+      if ( file.getIsStaged() ) {
+        vcs.resetPath( file.getName() );
+      } else {
+        if ( file.getChangeType() == ChangeType.DELETE ) {
+          vcs.rm( file.getName() );
+        } else {
+          vcs.add( file.getName() );
+        }
       }
-    } );
-    commitButton = (XulButton) document.getElementById( "commit" );
-    pullButton = (XulButton) document.getElementById( "pull" );
-    pushButton = (XulButton) document.getElementById( "push" );
-    branchButton = (XulButton) document.getElementById( "branch" );
-    tagButton = (XulButton) document.getElementById( "tag" );
+    } catch ( Exception e ) {
+      e.printStackTrace();
+    }
   }
 
   private void createBindings() {
@@ -187,13 +302,17 @@ public class GitController extends AbstractXulEventHandler {
     bf.setDocument( this.getXulDomContainer().getDocumentRoot() );
     bf.setBindingType( Binding.Type.ONE_WAY );
     bf.createBinding( this, "path", pathLabel, "value" );
-    branchBinding = bf.createBinding( this, "branch", branchLabel, "value" );
-    diffBinding = bf.createBinding( this, "diff", diffText, "value" );
-    revisionBinding = bf.createBinding( this, "revisions", revisionTable, "elements" );
-    changedBinding = bf.createBinding( this, "changedFiles", changedTable, "elements" );
+    branchBinding = bf.createBinding( this, "branchStatus", branchLabel, "value" );
+    if ( diffViewer == null ) {
+      diffBinding = bf.createBinding( this, "diff", diffText, "value" );
+    }
+    if ( revisionVirtualTable == null ) {
+      revisionBinding = bf.createBinding( this, "revisions", revisionTable, "elements" );
+      changedBinding = bf.createBinding( this, "changedFiles", changedTable, "elements" );
 
-    bf.createBinding( revisionTable, "selectedItems", this, "selectedRevisions" );
-    bf.createBinding( changedTable, "selectedItems", this, "selectedChangedFiles" );
+      bf.createBinding( revisionTable, "selectedItems", this, "selectedRevisions" );
+      bf.createBinding( changedTable, "selectedItems", this, "selectedChangedFiles" );
+    }
 
     bf.setBindingType( Binding.Type.BI_DIRECTIONAL );
     bf.createBinding( this, "authorName", authorNameTextbox, "value" );
@@ -239,7 +358,11 @@ public class GitController extends AbstractXulEventHandler {
       } else {
         vcs = new SVN();
       }
+      if ( "Y".equalsIgnoreCase( System.getProperty( METRICS, "N" ) ) ) {
+        vcs = VcsMetrics.getInstance( new LogChannel( PKG.getSimpleName() ) ).wrap( vcs );
+      }
       vcs.setShell( getShell() );
+      vcs.configure( repo );
       vcs.openRepo( baseDirectory );
     } catch ( RepositoryNotFoundException e ) {
       initGit( baseDirectory );
@@ -247,7 +370,7 @@ public class GitController extends AbstractXulEventHandler {
       e.printStackTrace();
     }
     // Create bindings if first time
-    if ( isOpen() && changedBinding == null ) {
+    if ( isOpen() && branchBinding == null ) {
       createBindings();
     }
     setActive();
@@ -283,9 +406,10 @@ public class GitController extends AbstractXulEventHandler {
 
   public void fireSourceChanged() {
     try {
-      revisionBinding.fireSourceChanged();
-      branchBinding.fireSourceChanged();
-      ( (SwtElement) document.getElementById( "branchLabel" ).getParent() ).layout();
+      vcs.invalidateStatus();
+      revisions = null;
+      refreshRevisions();
+      refreshBranchStatus();
     } catch ( Exception e ) {
       e.printStackTrace();
     }
@@ -293,22 +417,46 @@ public class GitController extends AbstractXulEventHandler {
 
   public void addToIndex() throws Exception {
     List<UIFile> contents = getSelectedChangedFiles();
-    for ( UIFile content : contents ) {
-      if ( content.getChangeType() == ChangeType.DELETE ) {
-        vcs.rm( content.getName() );
-      } else {
-        vcs.add( content.getName() );
-      }
-    }
-    changedBinding.fireSourceChanged();
+    vcs.rm( contents.stream()
+      .filter( content -> content.getChangeType() == ChangeType.DELETE )
+      .map( UIFile::getName ).collect( Collectors.toList() ) );
+    vcs.add( contents.stream()
+      .filter( content -> content.getChangeType() != ChangeType.DELETE )
+      .map( UIFile::getName ).collect( Collectors.toList() ) );
+    refreshChangedFiles();
   }
 
   public void removeFromIndex() throws Exception {
     List<UIFile> contents = getSelectedChangedFiles();
-    for ( UIFile content : contents ) {
-      vcs.resetPath( content.getName() );
+    vcs.resetPaths( contents.stream().map( UIFile::getName ).collect( Collectors.toList() ) );
+    refreshChangedFiles();
+  }
+
+  /**
+   * Reload the revision table, which clears the selection
+   * @throws Exception
+   */
+  private void refreshRevisions() throws Exception {
+    if ( revisionVirtualTable == null ) {
+      revisionBinding.fireSourceChanged();
+    } else {
+      revisionVirtualTable.setElements( getRevisions() );
+      setSelectedRevisions( Collections.<UIRepositoryObjectRevision>emptyList() );
+    }
+  }
+
+  /**
+   * Reload the changed-file table, which clears the selection
+   * @throws Exception
+   */
+  @VisibleForTesting
+  void refreshChangedFiles() throws Exception {
+    if ( changedVirtualTable == null ) {
+      changedBinding.fireSourceChanged();
+    } else {
+      changedVirtualTable.setElements( getChangedFiles() );
+      setSelectedChangedFiles( Collections.<UIFile>emptyList() );
     }
-    changedBinding.fireSourceChanged();
   }
 
   public void openFile() {
@@ -318,14 +466,14 @@ public class GitController extends AbstractXulEventHandler {
         String filePath = baseDirectory + Const.FILE_SEPARATOR + content.getName();
         String commitId;
         commitId = isOnlyWIP() ? IVCS.WORKINGTREE : getFirstSelectedRevision().getName();
-        try ( InputStream xmlStream = vcs.open( content.getName(), commitId ) ) {
+        try {
           EngineMetaInterface meta = null;
           if ( filePath.endsWith( Const.STRING_TRANS_DEFAULT_EXT )
               || FilenameUtils.removeExtension( filePath ).endsWith( Const.STRING_TRANS_DEFAULT_EXT ) ) {
-            meta = new TransMeta( xmlStream, null, true, null, null );
+            meta = loadMeta( content.getName(), commitId, true );
           } else if ( filePath.endsWith( Const.STRING_JOB_DEFAULT_EXT )
               || FilenameUtils.removeExtension( filePath ).endsWith( Const.STRING_JOB_DEFAULT_EXT ) ) {
-            meta = new JobMeta( xmlStream, null, null );
+            meta = loadMeta( content.getName(), commitId, false );
           } else {
             showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Select a Kettle file" );
             return;
@@ -355,7 +503,8 @@ public class GitController extends AbstractXulEventHandler {
         /*
          * Determine which versions and open the Kettle files
          */
-        InputStream xmlStreamOld, xmlStreamNew;
+        String fileOld, fileNew;
+        String versionOld, versionNew;
         String commitIdOld, commitIdNew;
         String filePathOld, filePathNew;
         filePathOld = filePathNew = filePath;
@@ -373,8 +522,9 @@ public class GitController extends AbstractXulEventHandler {
             commitIdOld = getSelectedRevisions().size() == 1 ? vcs.getParentCommitId( commitIdNew )
               : getLastSelectedRevision().getName();
           }
-          xmlStreamOld = vcs.open( content.getName(), commitIdOld );
-          xmlStreamNew = vcs.open( content.getName(), commitIdNew );
+          fileOld = fileNew = content.getName();
+          versionOld = commitIdOld;
+          versionNew = commitIdNew;
         } else if ( FilenameUtils.removeExtension( filePath ).endsWith( Const.STRING_TRANS_DEFAULT_EXT )
             || FilenameUtils.removeExtension( filePath ).endsWith( Const.STRING_JOB_DEFAULT_EXT ) ) { // conflicted Kettle files
           commitIdNew = FilenameUtils.getExtension( filePath );
@@ -391,8 +541,9 @@ public class GitController extends AbstractXulEventHandler {
             EnterSelectionDialog esd = new EnterSelectionDialog( getShell(), candidates.toArray( new String[candidates.size()] ), "Select version", "Select a version to compare with..." );
             commitIdOld = esd.open();
           }
-          xmlStreamNew = vcs.open( content.getName(), IVCS.WORKINGTREE );
-          xmlStreamOld = vcs.open( FilenameUtils.removeExtension( content.getName() ) + "." + commitIdOld, IVCS.WORKINGTREE );
+          fileNew = content.getName();
+          fileOld = FilenameUtils.removeExtension( content.getName() ) + "." + commitIdOld;
+          versionOld = versionNew = IVCS.WORKINGTREE;
           filePathOld = filePath + "." + commitIdOld;
         } else {
           showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Select a Kettle file" );
@@ -401,25 +552,23 @@ public class GitController extends AbstractXulEventHandler {
 
         EngineMetaInterface metaOld = null, metaNew = null;
         try {
+          Map<Object, String> fingerprints = new IdentityHashMap<Object, String>();
           if ( filePath.endsWith( Const.STRING_TRANS_DEFAULT_EXT ) ) {
             // Use temporary metaOld_ because metaOld will be modified before the 2nd comparison
-            metaOld = new TransMeta( xmlStreamOld, null, true, null, null );
-            metaNew = new TransMeta( xmlStreamNew, null, true, null, null );
-            metaOld = PdiDiff.compareSteps( (TransMeta) metaOld, (TransMeta) metaNew, true );
-            metaNew = PdiDiff.compareSteps( (TransMeta) metaNew, (TransMeta) metaOld, false );
+            metaOld = loadMeta( fileOld, versionOld, true );
+            metaNew = loadMeta( fileNew, versionNew, true );
+            metaOld = PdiDiff.compareSteps( (TransMeta) metaOld, (TransMeta) metaNew, true, fingerprints );
+            metaNew = PdiDiff.compareSteps( (TransMeta) metaNew, (TransMeta) metaOld, false, fingerprints );
             ( (TransMeta) metaOld ).setTransversion( "git: " + commitIdOld );
             ( (TransMeta) metaNew ).setTransversion( "git: " + commitIdNew );
           } else {
-            metaOld = new JobMeta( xmlStreamOld, null, null );
-            metaNew = new JobMeta( xmlStreamNew, null, null );
-            metaOld = PdiDiff.compareJobEntries( (JobMeta) metaOld, (JobMeta) metaNew, true );
-            metaNew = PdiDiff.compareJobEntries( (JobMeta) metaNew, (JobMeta) metaOld, false );
+            metaOld = loadMeta( fileOld, versionOld, false );
+            metaNew = loadMeta( fileNew, versionNew, false );
+            metaOld = PdiDiff.compareJobEntries( (JobMeta) metaOld, (JobMeta) metaNew, true, fingerprints );
+            metaNew = PdiDiff.compareJobEntries( (JobMeta) metaNew, (JobMeta) metaOld, false, fingerprints );
             ( (JobMeta) metaOld ).setJobversion( "git: " + commitIdOld );
             ( (JobMeta) metaNew ).setJobversion( "git: " + commitIdNew );
           }
-          xmlStreamOld.close();
-          xmlStreamNew.close();
-
           metaOld.setName( String.format( "%s (%s -> %s)", metaOld.getName(),
               vcs.getShortenedName( commitIdOld, IVCS.TYPE_COMMIT ), vcs.getShortenedName( commitIdNew, IVCS.TYPE_COMMIT ) ) );
           metaNew.setName( String.format( "%s (%s -> %s)", metaNew.getName(),
@@ -436,6 +585,46 @@ public class GitController extends AbstractXulEventHandler {
       } );
   }
 
+  /**
+   * Parse a Kettle file or take a copy of the one parsed before.
+   * Files at a commit are cached by their content id, and files in the working tree by their timestamp and size.
+   * @param file
+   * @param commitId
+   * @param isTrans true for a transformation, false for a job
+   * @return a meta which the caller can modify
+   * @throws Exception
+   */
+  @VisibleForTesting
+  EngineMetaInterface loadMeta( String file, String commitId, boolean isTrans ) throws Exception {
+    String key = getMetaCacheKey( file, commitId );
+    AbstractMeta meta = key == null ? null : metaCache.get( key );
+    if ( meta == null ) {
+      try ( InputStream xmlStream = vcs.open( file, commitId ) ) {
+        meta = isTrans ? new TransMeta( xmlStream, null, true, null, null ) : new JobMeta( xmlStream, null, null );
+      }
+      if ( key == null ) {
+        return meta;
+      }
+      metaCache.put( key, meta );
+    }
+    // Callers modify the meta (e.g., diff status, name), so keep the cached one intact
+    return (EngineMetaInterface) ( isTrans ? ( (TransMeta) meta ).clone() : ( (JobMeta) meta ).clone() );
+  }
+
+  private String getMetaCacheKey( String file, String commitId ) {
+    String filePath = vcs.getDirectory() + Const.FILE_SEPARATOR + file;
+    if ( commitId.equals( IVCS.WORKINGTREE ) ) {
+      File f = new File( filePath );
+      return f.isFile() ? filePath + ":" + f.lastModified() + ":" + f.length() : null;
+    }
+    String contentId = vcs.getContentId( file, commitId );
+    return contentId == null ? null : filePath + "@" + contentId;
+  }
+
+  public LruCache<String, AbstractMeta> getMetaCache() {
+    return metaCache;
+  }
+
   @VisibleForTesting
   void addGraph( EngineMetaInterface meta, String filePath ) {
     meta.clearChanged();
@@ -467,7 +656,7 @@ public class GitController extends AbstractXulEventHandler {
 
   public void setSelectedRevisions( List<UIRepositoryObjectRevision> selectedRevisions ) throws Exception {
     this.selectedRevisions = selectedRevisions;
-    changedBinding.fireSourceChanged();
+    refreshChangedFiles();
   }
 
   public List<UIFile> getSelectedChangedFiles() {
@@ -476,7 +665,24 @@ public class GitController extends AbstractXulEventHandler {
 
   public void setSelectedChangedFiles( List<UIFile> selectedFiles ) throws Exception {
     this.selectedChangedFiles = selectedFiles;
-    diffBinding.fireSourceChanged();
+    fullDiff = false;
+    refreshDiff();
+  }
+
+  /**
+   * Show the diff of the selected file without the byte and time budgets
+   */
+  public void loadFullDiff() throws Exception {
+    fullDiff = true;
+    refreshDiff();
+  }
+
+  private void refreshDiff() throws Exception {
+    if ( diffViewer != null ) {
+      diffViewer.setDiff( getDiffBuffer() );
+    } else {
+      diffBinding.fireSourceChanged();
+    }
   }
 
   /**
@@ -509,27 +715,85 @@ public class GitController extends AbstractXulEventHandler {
     return vcs.getBranch();
   }
 
+  /**
+   * The current branch followed by the number of commits ahead of (up arrow) and behind (down arrow) its upstream
+   * once they have been counted by {@link #refreshBranchStatus()}
+   * @return
+   */
+  public String getBranchStatus() {
+    return branchStatus == null ? getBranch() : branchStatus;
+  }
+
+  /**
+   * Show the current branch at once, and count commits ahead and behind in the background
+   * because it may walk the whole history (and load the generation index) for the first time
+   */
+  private void refreshBranchStatus() {
+    String branch = getBranch();
+    branchStatus = branch;
+    fireBranchStatusChanged();
+    IVCS target = vcs;
+    scheduler.scheduleInBackground( target.getDirectory(), target, IVCS::getAheadBehind, aheadBehind -> {
+      if ( aheadBehind == null || target != vcs || !Objects.equals( branch, getBranch() ) ) { // Stale
+        return;
+      }
+      branchStatus = branch + " \u2191" + aheadBehind[0] + " \u2193" + aheadBehind[1];
+      fireBranchStatusChanged();
+    } );
+  }
+
+  private void fireBranchStatusChanged() {
+    try {
+      branchBinding.fireSourceChanged();
+      ( (SwtElement) document.getElementById( "branchLabel" ).getParent() ).layout();
+    } catch ( Exception e ) {
+      e.printStackTrace();
+    }
+  }
+
   public String getDiff() {
+    StringBuilder diff = new StringBuilder();
     try {
-      List<UIFile> selectedFiles = getSelectedChangedFiles();
-      if ( selectedFiles.size() != 0 ) {
-        if ( isOnlyWIP() ) {
-          if ( selectedFiles.get( 0 ).getIsStaged() ) {
-            return vcs.diff( Constants.HEAD, IVCS.INDEX, selectedFiles.get( 0 ).getName() );
-          } else {
-            return vcs.diff( IVCS.INDEX, IVCS.WORKINGTREE, selectedFiles.get( 0 ).getName() );
-          }
+      writeDiff( diff );
+    } catch ( Exception e ) {
+      return e.getMessage();
+    }
+    return diff.toString();
+  }
+
+  /**
+   * Stream the diff of the selected file into a buffer for {@link DiffViewer}
+   * without building the whole patch as a String first
+   * @return
+   */
+  private DiffBuffer getDiffBuffer() {
+    DiffBuffer diff = new DiffBuffer();
+    try {
+      writeDiff( diff );
+    } catch ( Exception e ) {
+      diff = new DiffBuffer();
+      if ( e.getMessage() != null ) {
+        diff.append( e.getMessage() );
+      }
+    }
+    return diff;
+  }
+
+  private void writeDiff( Appendable out ) throws Exception {
+    List<UIFile> selectedFiles = getSelectedChangedFiles();
+    if ( selectedFiles.size() != 0 ) {
+      if ( isOnlyWIP() ) {
+        if ( selectedFiles.get( 0 ).getIsStaged() ) {
+          vcs.diff( Constants.HEAD, IVCS.INDEX, selectedFiles.get( 0 ).getName(), fullDiff, out );
         } else {
-          String newCommitId = getFirstSelectedRevision().getName();
-          String oldCommitId = getSelectedRevisions().size() == 1 ? vcs.getParentCommitId( newCommitId )
-            : getLastSelectedRevision().getName();
-          return vcs.diff( oldCommitId, newCommitId, selectedFiles.get( 0 ).getName() );
+          vcs.diff( IVCS.INDEX, IVCS.WORKINGTREE, selectedFiles.get( 0 ).getName(), fullDiff, out );
         }
       } else {
-        return "";
+        String newCommitId = getFirstSelectedRevision().getName();
+        String oldCommitId = getSelectedRevisions().size() == 1 ? vcs.getParentCommitId( newCommitId )
+          : getLastSelectedRevision().getName();
+        vcs.diff( oldCommitId, newCommitId, selectedFiles.get( 0 ).getName(), fullDiff, out );
       }
-    } catch ( Exception e ) {
-      return e.getMessage();
     }
   }
 
@@ -552,7 +816,49 @@ public class GitController extends AbstractXulEventHandler {
   }
 
   public UIRepositoryObjectRevisions getRevisions() {
-    return vcs.getRevisions();
+    if ( revisions == null ) {
+      revisions = vcs.getRevisions( 0, REVISION_PAGE_SIZE );
+      hasMoreRevisions = countCommits( revisions ) >= REVISION_PAGE_SIZE;
+    }
+    return revisions;
+  }
+
+  /**
+   * Append the next page of revisions to the revision table
+   */
+  @VisibleForTesting
+  void loadMoreRevisions() {
+    if ( revisions == null || !hasMoreRevisions ) {
+      return;
+    }
+    UIRepositoryObjectRevisions page = vcs.getRevisions( countCommits( revisions ), REVISION_PAGE_SIZE );
+    hasMoreRevisions = page.size() >= REVISION_PAGE_SIZE;
+    if ( page.isEmpty() ) {
+      return;
+    }
+    revisions.addAll( page );
+    if ( revisionVirtualTable != null ) {
+      revisionVirtualTable.elementsAdded();
+      return;
+    }
+    try {
+      Table table = ( (TableViewer) revisionTable.getManagedObject() ).getTable();
+      int topIndex = table.getTopIndex();
+      revisionBinding.fireSourceChanged();
+      table.setTopIndex( topIndex );
+    } catch ( Exception e ) {
+      e.printStackTrace();
+    }
+  }
+
+  private boolean isNearLastRevision( int index ) {
+    return revisions != null && index >= revisions.size() - REVISION_PAGE_SIZE / 2;
+  }
+
+  private static int countCommits( UIRepositoryObjectRevisions revisions ) {
+    return (int) revisions.stream()
+      .filter( revision -> !revision.getName().equals( IVCS.WORKINGTREE ) )
+      .count();
   }
 
   public List<UIFile> getChangedFiles() {
@@ -715,9 +1021,7 @@ public class GitController extends AbstractXulEventHandler {
     confirmBox.addDialogCallback( (XulDialogLambdaCallback<Object>) ( sender, returnCode, retVal ) -> {
       if ( returnCode.equals( Status.ACCEPT ) ) {
         List<UIFile> contents = getSelectedChangedFiles();
-        for ( UIFile content : contents ) {
-          vcs.revertPath( content.getName() );
-        }
+        vcs.revertPaths( contents.stream().map( UIFile::getName ).collect( Collectors.toList() ) );
         fireSourceChanged();
       }
     } );
@@ -729,9 +1033,12 @@ public class GitController extends AbstractXulEventHandler {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "One or more tabs have unsaved changes" );
       return;
     }
-    if ( vcs.pull() ) {
-      fireSourceChanged();
-    }
+    scheduler.schedule( vcs.getDirectory(), BaseMessages.getString( PKG, vcs.getType() + ".Pull" ), vcs,
+      IVCS::pull, pulled -> {
+        if ( pulled ) {
+          fireSourceChanged();
+        }
+      } );
   }
 
   public void push() {
@@ -739,7 +1046,8 @@ public class GitController extends AbstractXulEventHandler {
   }
 
   public void push( String type ) {
-    vcs.push( type );
+    scheduler.schedule( vcs.getDirectory(), BaseMessages.getString( PKG, "Git.Push" ), vcs,
+      git -> git.push( type ), pushed -> { } );
   }
 
   public void createBranch() throws XulException {
@@ -832,6 +1140,16 @@ public class GitController extends AbstractXulEventHandler {
     }
   }
 
+  public void showDiagnostics() {
+    VcsMetrics metrics = VcsMetrics.getInstance();
+    if ( metrics == null ) {
+      showMessageBox( BaseMessages.getString( PKG, "Git.Diagnostics" ),
+          BaseMessages.getString( PKG, "Git.Diagnostics.Disabled", METRICS ) );
+      return;
+    }
+    new DiagnosticsDialog( getShell(), metrics ).open();
+  }
+
   private void showMessageBox( String title, String message ) {
     try {
       XulMessageBox messageBox = (XulMessageBox) document.createElement( "messagebox" );
@@ -28,6 +28,8 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTException;
 import org.eclipse.swt.widgets.Composite;
 import org.pentaho.di.core.EngineMetaInterface;
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.ui.spoon.Spoon;
 import org.pentaho.di.ui.spoon.SpoonPerspectiveImageProvider;
@@ -60,34 +62,9 @@ public class GitPerspective implements SpoonPerspectiveImageProvider {
   private GitController controller;
   private GitSpoonMenuController gitSpoonMenuController;
   private XulVbox box;
+  private LogChannelInterface log = new LogChannel( PKG.getSimpleName() );
 
   public GitPerspective() throws XulException {
-    // Loading Xul Document
-    KettleXulLoader loader = new KettleXulLoader();
-    loader.registerClassLoader( getClass().getClassLoader() );
-    container = loader.loadXul( "org/pentaho/di/git/spoon/xul/git_perspective.xul", resourceBundle );
-
-    // Adding Event Handlers
-    controller = new GitController();
-    gitSpoonMenuController = new GitSpoonMenuController();
-    gitSpoonMenuController.setGitController( controller );
-    container.addEventHandler( controller );
-    container.addEventHandler( gitSpoonMenuController );
-
-    final XulRunner runner = new SwtXulRunner();
-    runner.addContainer( container );
-    runner.initialize(); //calls any onload events
-
-    /*
-     * To make compatible with webSpoon
-     * Create a temporary parent for the UI and then call layout().
-     * A different parent will be assigned to the UI in SpoonPerspectiveManager.PerspectiveManager.performInit().
-     */
-    SwtDeck deck = (SwtDeck) Spoon.getInstance().getXulDomContainer().getDocumentRoot().getElementById( "canvas-deck" );
-    box = deck.createVBoxCard();
-    getUI().setParent( (Composite) box.getManagedObject() );
-    getUI().layout();
-
     /**
      * Hack: setAccelerator 'CTRL(CMD) + D' to "Data Integration" menu
      */
@@ -108,6 +85,51 @@ public class GitPerspective implements SpoonPerspectiveImageProvider {
       } );
   }
 
+  /**
+   * Load the XUL document and create the controllers.
+   * This is deferred from Spoon startup until the perspective is shown (or used by another plugin) for the first time.
+   */
+  private synchronized void initialize() {
+    if ( container != null ) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    try {
+      // Loading Xul Document
+      KettleXulLoader loader = new KettleXulLoader();
+      loader.registerClassLoader( getClass().getClassLoader() );
+      XulDomContainer xulContainer = loader.loadXul( "org/pentaho/di/git/spoon/xul/git_perspective.xul", resourceBundle );
+
+      // Adding Event Handlers
+      controller = new GitController();
+      gitSpoonMenuController = new GitSpoonMenuController();
+      gitSpoonMenuController.setGitController( controller );
+      OperationScheduler scheduler = new OperationScheduler( Spoon.getInstance().getShell() );
+      controller.setScheduler( scheduler );
+      gitSpoonMenuController.setScheduler( scheduler );
+      xulContainer.addEventHandler( controller );
+      xulContainer.addEventHandler( gitSpoonMenuController );
+
+      final XulRunner runner = new SwtXulRunner();
+      runner.addContainer( xulContainer );
+      runner.initialize(); //calls any onload events
+      container = xulContainer;
+    } catch ( XulException e ) {
+      throw new IllegalStateException( e );
+    }
+
+    /*
+     * To make compatible with webSpoon
+     * Create a temporary parent for the UI and then call layout().
+     * A different parent will be assigned to the UI in SpoonPerspectiveManager.PerspectiveManager.performInit().
+     */
+    SwtDeck deck = (SwtDeck) Spoon.getInstance().getXulDomContainer().getDocumentRoot().getElementById( "canvas-deck" );
+    box = deck.createVBoxCard();
+    getUI().setParent( (Composite) box.getManagedObject() );
+    getUI().layout();
+    log.logDetailed( "Git perspective initialized in " + ( System.currentTimeMillis() - start ) + " ms" );
+  }
+
   @Override
   public String getId() {
     return PERSPECTIVE_ID;
@@ -119,6 +141,7 @@ public class GitPerspective implements SpoonPerspectiveImageProvider {
 
   @Override
   public Composite getUI() {
+    initialize();
     return (Composite) container.getDocumentRoot().getRootElement().getFirstChild().getManagedObject();
   }
 
@@ -135,6 +158,10 @@ public class GitPerspective implements SpoonPerspectiveImageProvider {
 
   @Override
   public void setActive( boolean active ) {
+    if ( !active && container == null ) {
+      return; // Never shown
+    }
+    initialize();
     try { // Dispose the temporary parent
       ( (Composite) box.getManagedObject() ).dispose();
     } catch ( SWTException e ) {
@@ -200,6 +227,7 @@ public class GitPerspective implements SpoonPerspectiveImageProvider {
   }
 
   public GitController getController() {
+    initialize();
     return this.controller;
   }
 
@@ -210,6 +238,7 @@ public class GitPerspective implements SpoonPerspectiveImageProvider {
    * @param repositoryName
    */
   public void openRepository( String repositoryName ) throws MetaStoreException {
+    initialize();
     gitSpoonMenuController.openRepo( repositoryName );
   }
 
@@ -220,6 +249,7 @@ public class GitPerspective implements SpoonPerspectiveImageProvider {
    * @throws MetaStoreException
    */
   public List<String> getRepoNames() throws MetaStoreException {
+    initialize();
     return gitSpoonMenuController.getRepoNames();
   }
 }
@@ -47,17 +47,23 @@ import org.pentaho.ui.xul.util.XulDialogCallback.Status;
 import org.pentaho.ui.xul.util.XulDialogLambdaCallback;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
 
 public class GitSpoonMenuController extends AbstractXulEventHandler implements ISpoonMenuController {
 
   private static final Class<?> PKG = GitController.class;
 
   private GitController gitController;
+  private OperationScheduler scheduler = new OperationScheduler();
 
   public void setGitController( GitController gitController ) {
     this.gitController = gitController;
   }
 
+  public void setScheduler( OperationScheduler scheduler ) {
+    this.scheduler = scheduler;
+  }
+
   public void openRepo() {
     MetaStoreFactory<GitRepository> repoFactory = getRepoFactory();
 
@@ -176,13 +182,19 @@ public class GitSpoonMenuController extends AbstractXulEventHandler implements I
       }
       String url = dialog.getURL();
       String directory = repo.getPhysicalDirectory() + File.separator + dialog.getCloneAs();
+      String branch = dialog.getBranch();
+      boolean singleBranch = dialog.isSingleBranch();
       IVCS vcs = getVCS( repo );
       vcs.setShell( getShell() );
-      if ( vcs.cloneRepo( directory, url ) ) {
-        showMessageBox( "Success", "Success" );
-        saveRepository( repo );
-        gitController.openGit( repo );
-      }
+      scheduler.schedule( directory, BaseMessages.getString( PKG, "Git.Clone" ), vcs,
+        v -> Strings.isNullOrEmpty( branch ) ? v.cloneRepo( directory, url )
+          : v.cloneRepo( directory, url, branch, singleBranch ), cloned -> {
+          if ( cloned ) {
+            showMessageBox( "Success", "Success" );
+            saveRepository( repo );
+            gitController.openGit( repo );
+          }
+        } );
     }
   }
 
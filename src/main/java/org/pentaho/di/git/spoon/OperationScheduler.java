@@ -0,0 +1,260 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jface.dialogs.ProgressMonitorDialog;
+import org.eclipse.jgit.lib.BatchingProgressMonitor;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.pentaho.di.git.spoon.model.IVCS;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.ui.core.dialog.ErrorDialog;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Run long (i.e., network) operations of {@link IVCS} off the UI thread.
+ * Operations on the same repository are run one after another, the progress is shown in a dialog
+ * with a cancel button, and the result is passed back to the UI thread.
+ * Without a display (e.g., in unit tests), operations are run inline.
+ */
+public class OperationScheduler {
+
+  private static final Class<?> PKG = GitController.class;
+  private static final int POOL_SIZE = 2;
+
+  private final Shell shell;
+  private final ExecutorService executor;
+  private final Executor uiExecutor;
+  private final Map<String, CompletableFuture<?>> lastOperations = new HashMap<String, CompletableFuture<?>>();
+
+  /**
+   * Run operations inline on the calling thread
+   */
+  public OperationScheduler() {
+    this( null );
+  }
+
+  /**
+   * Run operations on a worker pool
+   * @param shell the parent of progress dialogs
+   */
+  public OperationScheduler( Shell shell ) {
+    this( shell, shell == null ? null : Executors.newFixedThreadPool( POOL_SIZE, runnable -> {
+      Thread thread = new Thread( runnable, "Git operation" );
+      thread.setDaemon( true );
+      return thread;
+    } ), shell == null ? null : runnable -> {
+      Display display = shell.getDisplay();
+      if ( !display.isDisposed() ) {
+        display.asyncExec( runnable );
+      }
+    } );
+  }
+
+  /**
+   * @param shell the parent of progress dialogs
+   * @param executor runs operations, or null to run them inline
+   * @param uiExecutor runs callbacks on the UI thread
+   */
+  @VisibleForTesting
+  OperationScheduler( Shell shell, ExecutorService executor, Executor uiExecutor ) {
+    this.shell = shell;
+    this.executor = executor;
+    this.uiExecutor = uiExecutor;
+  }
+
+  /**
+   * Schedule an operation
+   * @param repository operations with the same key (e.g., directory) are serialized
+   * @param title shown in the progress dialog
+   * @param vcs which receives the progress monitor while the operation runs
+   * @param operation to be run on a worker thread
+   * @param callback to be called with the result on the UI thread
+   */
+  public <T> void schedule( String repository, String title, IVCS vcs, Function<IVCS, T> operation, Consumer<T> callback ) {
+    if ( executor == null ) {
+      callback.accept( operation.apply( vcs ) );
+      return;
+    }
+    Progress progress = openProgress( title );
+    CompletableFuture<T> future = enqueue( repository, () -> {
+      vcs.setProgressMonitor( progress.getMonitor() );
+      try {
+        return operation.apply( vcs );
+      } finally {
+        vcs.setProgressMonitor( null );
+      }
+    } );
+    future.whenComplete( ( result, e ) -> uiExecutor.execute( () -> {
+      dequeue( repository, future );
+      progress.close();
+      if ( e == null ) {
+        callback.accept( result );
+      } else {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        new ErrorDialog( shell, BaseMessages.getString( PKG, "Dialog.Error" ), title, cause );
+      }
+    } ) );
+  }
+
+  /**
+   * Schedule a local operation which is short but too slow for the UI thread (e.g., counting commits),
+   * without a progress dialog. An error is just printed as the result is informative only.
+   * @param repository operations with the same key (e.g., directory) are serialized
+   * @param vcs
+   * @param operation to be run on a worker thread
+   * @param callback to be called with the result on the UI thread
+   */
+  public <T> void scheduleInBackground( String repository, IVCS vcs, Function<IVCS, T> operation, Consumer<T> callback ) {
+    if ( executor == null ) {
+      callback.accept( operation.apply( vcs ) );
+      return;
+    }
+    CompletableFuture<T> future = enqueue( repository, () -> operation.apply( vcs ) );
+    future.whenComplete( ( result, e ) -> uiExecutor.execute( () -> {
+      dequeue( repository, future );
+      if ( e == null ) {
+        callback.accept( result );
+      } else {
+        e.printStackTrace();
+      }
+    } ) );
+  }
+
+  /**
+   * Run an operation on the worker pool after the last one for the same repository,
+   * regardless of the outcome of that one
+   * @param repository
+   * @param operation
+   * @return
+   */
+  private <T> CompletableFuture<T> enqueue( String repository, Supplier<T> operation ) {
+    synchronized ( lastOperations ) {
+      CompletableFuture<?> last = lastOperations.getOrDefault( repository, CompletableFuture.completedFuture( null ) );
+      CompletableFuture<T> future = last
+        .handle( ( result, e ) -> null )
+        .thenApplyAsync( nothing -> operation.get(), executor );
+      lastOperations.put( repository, future );
+      return future;
+    }
+  }
+
+  private void dequeue( String repository, CompletableFuture<?> future ) {
+    synchronized ( lastOperations ) {
+      lastOperations.remove( repository, future );
+    }
+  }
+
+  /**
+   * Open a progress dialog with a cancel button
+   * @param title
+   * @return
+   */
+  @VisibleForTesting
+  Progress openProgress( String title ) {
+    ProgressMonitorDialog dialog = new ProgressMonitorDialog( shell );
+    dialog.setCancelable( true );
+    dialog.setBlockOnOpen( false );
+    dialog.open();
+    dialog.getProgressMonitor().beginTask( title, IProgressMonitor.UNKNOWN );
+    DialogProgressMonitor monitor = new DialogProgressMonitor( dialog );
+    return new Progress() {
+      @Override
+      public ProgressMonitor getMonitor() {
+        return monitor;
+      }
+
+      @Override
+      public void close() {
+        dialog.close();
+      }
+    };
+  }
+
+  /**
+   * The progress of an operation shown to the user
+   */
+  @VisibleForTesting
+  interface Progress {
+    /**
+     * @return a monitor that is cancelled by the user
+     */
+    ProgressMonitor getMonitor();
+
+    void close();
+  }
+
+  /**
+   * Pass JGit progress to the progress dialog in batches on the UI thread,
+   * and the cancel button back to JGit.
+   */
+  private class DialogProgressMonitor extends BatchingProgressMonitor {
+
+    private final ProgressMonitorDialog dialog;
+
+    DialogProgressMonitor( ProgressMonitorDialog dialog ) {
+      this.dialog = dialog;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return dialog.getProgressMonitor().isCanceled();
+    }
+
+    @Override
+    protected void onUpdate( String taskName, int workCurr ) {
+      subTask( taskName + ": " + workCurr );
+    }
+
+    @Override
+    protected void onEndTask( String taskName, int workCurr ) {
+      subTask( taskName + ": " + workCurr );
+    }
+
+    @Override
+    protected void onUpdate( String taskName, int workCurr, int workTotal, int percentDone ) {
+      subTask( taskName + ": " + percentDone + "% (" + workCurr + "/" + workTotal + ")" );
+    }
+
+    @Override
+    protected void onEndTask( String taskName, int workCurr, int workTotal, int percentDone ) {
+      subTask( taskName + ": " + percentDone + "% (" + workCurr + "/" + workTotal + ")" );
+    }
+
+    private void subTask( String name ) {
+      uiExecutor.execute( () -> {
+        if ( dialog.getShell() != null && !dialog.getShell().isDisposed() ) {
+          dialog.getProgressMonitor().subTask( name );
+        }
+      } );
+    }
+  }
+}
@@ -16,15 +16,32 @@
 
 package org.pentaho.di.git.spoon;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
+import org.apache.commons.io.output.NullOutputStream;
+import org.pentaho.di.core.AttributesInterface;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.job.JobMeta;
 import org.pentaho.di.job.entry.JobEntryCopy;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.StepMeta;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.BaseEncoding;
+
 public class PdiDiff {
   public static String ATTR_GIT = "Git";
   public static String ATTR_STATUS = "Status";
@@ -34,27 +51,30 @@ public class PdiDiff {
   public static String REMOVED = "REMOVED";
   public static String ADDED = "ADDED";
 
+  private static final Pattern GIT_ATTRIBUTES = Pattern.compile( "<group><name>" + Pattern.quote( ATTR_GIT ) + "</name>.*?</group>", Pattern.DOTALL );
+  private static final String EMPTY_ATTRIBUTES = "<attributes></attributes>";
+
   public static TransMeta compareSteps( TransMeta transMeta1, TransMeta transMeta2, boolean isForward ) {
+    return compareSteps( transMeta1, transMeta2, isForward, new IdentityHashMap<Object, String>() );
+  }
+
+  /**
+   * @param fingerprints fingerprints computed so far, which can be shared by the comparison in the other direction
+   */
+  public static TransMeta compareSteps( TransMeta transMeta1, TransMeta transMeta2, boolean isForward, Map<Object, String> fingerprints ) {
+    Map<String, StepMeta> steps2 = indexByName( transMeta2.getSteps(), StepMeta::getName );
     transMeta1.getSteps().forEach( step -> {
-      Optional<StepMeta> step2 = transMeta2.getSteps().stream()
-          .filter( obj -> step.getName().equals( obj.getName() ) ).findFirst();
+      Optional<StepMeta> step2 = Optional.ofNullable( steps2.get( step.getName() ) );
       String status = null;
       if ( step2.isPresent() ) {
-        Map<String, String> tmp = null, tmp2 = null;
         try {
-          // AttributeMap("Git") cannot affect the XML comparison
-          tmp = step.getAttributesMap().remove( ATTR_GIT );
-          tmp2 = step2.get().getAttributesMap().remove( ATTR_GIT );
-          if ( step.getXML().equals( step2.get().getXML() ) ) {
+          if ( getFingerprint( step, step::getXML, fingerprints ).equals( getFingerprint( step2.get(), step2.get()::getXML, fingerprints ) ) ) {
             status = UNCHANGED;
           } else {
             status = CHANGED;
           }
         } catch ( KettleException e ) {
           e.printStackTrace();
-        } finally {
-          step.setAttributes( ATTR_GIT, tmp );
-          step2.get().setAttributes( ATTR_GIT, tmp2 );
         }
       } else {
         if ( isForward ) {
@@ -69,22 +89,27 @@ public class PdiDiff {
   }
 
   public static JobMeta compareJobEntries( JobMeta jobMeta1, JobMeta jobMeta2, boolean isForward ) {
+    return compareJobEntries( jobMeta1, jobMeta2, isForward, new IdentityHashMap<Object, String>() );
+  }
+
+  /**
+   * @param fingerprints fingerprints computed so far, which can be shared by the comparison in the other direction
+   */
+  public static JobMeta compareJobEntries( JobMeta jobMeta1, JobMeta jobMeta2, boolean isForward, Map<Object, String> fingerprints ) {
+    Map<String, JobEntryCopy> jes2 = indexByName( jobMeta2.getJobCopies(), JobEntryCopy::getName );
     jobMeta1.getJobCopies().forEach( je -> {
-      Optional<JobEntryCopy> je2 = jobMeta2.getJobCopies().stream()
-          .filter( obj -> je.getName().equals( obj.getName() ) ).findFirst();
+      Optional<JobEntryCopy> je2 = Optional.ofNullable( jes2.get( je.getName() ) );
       String status = null;
       if ( je2.isPresent() ) {
-        Map<String, String> tmp = null, tmp2 = null;
-        // AttributeMap("Git") cannot affect the XML comparison
-        tmp = je.getAttributesMap().remove( ATTR_GIT );
-        tmp2 = je2.get().getAttributesMap().remove( ATTR_GIT );
-        if ( je.getXML().equals( je2.get().getXML() ) ) {
-          status = UNCHANGED;
-        } else {
-          status = CHANGED;
+        try {
+          if ( getFingerprint( je, je::getXML, fingerprints ).equals( getFingerprint( je2.get(), je2.get()::getXML, fingerprints ) ) ) {
+            status = UNCHANGED;
+          } else {
+            status = CHANGED;
+          }
+        } catch ( KettleException e ) {
+          e.printStackTrace();
         }
-        je.setAttributes( ATTR_GIT, tmp );
-        je2.get().setAttributes( ATTR_GIT, tmp2 );
       } else {
         if ( isForward ) {
           status = REMOVED;
@@ -96,4 +121,66 @@ public class PdiDiff {
     } );
     return jobMeta1;
   }
+
+  /**
+   * Get the SHA-1 of the XML of a step/job entry, which is computed only once per object.
+   * It is kept in the given map, not in the AttributeMap, which would be written out with the XML
+   * and trusted on the next load even after the object has been edited.
+   */
+  @VisibleForTesting
+  static String getFingerprint( AttributesInterface obj, XmlSource source, Map<Object, String> fingerprints ) throws KettleException {
+    String fingerprint = fingerprints.get( obj );
+    if ( fingerprint != null ) {
+      return fingerprint;
+    }
+    fingerprint = digest( excludeGitAttributes( source.getXML() ) );
+    fingerprints.put( obj, fingerprint );
+    return fingerprint;
+  }
+
+  /**
+   * AttributeMap("Git") cannot affect the fingerprint, so its group is cut out of the XML
+   * rather than removed from the object and put back
+   * @param xml of a step/job entry, where attribute groups are written as
+   * &lt;attributes&gt;&lt;group&gt;&lt;name&gt;Git&lt;/name&gt;...&lt;/group&gt;&lt;/attributes&gt;
+   * @return
+   */
+  @VisibleForTesting
+  static String excludeGitAttributes( String xml ) {
+    return GIT_ATTRIBUTES.matcher( xml ).replaceAll( "" ).replace( EMPTY_ATTRIBUTES, "" );
+  }
+
+  /**
+   * Hash the UTF-8 encoding of the XML without keeping a copy of the encoded bytes
+   */
+  private static String digest( String xml ) {
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance( "SHA-1" );
+    } catch ( NoSuchAlgorithmException e ) {
+      throw new IllegalStateException( e );
+    }
+    try ( Writer writer = new OutputStreamWriter(
+        new DigestOutputStream( new NullOutputStream(), md ), StandardCharsets.UTF_8 ) ) {
+      writer.write( xml );
+    } catch ( IOException e ) {
+      throw new IllegalStateException( e ); // Never happens with NullOutputStream
+    }
+    return BaseEncoding.base16().lowerCase().encode( md.digest() );
+  }
+
+  /**
+   * Index objects by name so that each lookup does not scan the whole list.
+   * When names are duplicated (e.g., copies of a job entry), the first one wins as before.
+   */
+  private static <T> Map<String, T> indexByName( List<T> objects, Function<T, String> name ) {
+    Map<String, T> index = new HashMap<String, T>( objects.size() * 2 );
+    objects.forEach( obj -> index.putIfAbsent( name.apply( obj ), obj ) );
+    return index;
+  }
+
+  @FunctionalInterface
+  interface XmlSource {
+    String getXML() throws KettleException;
+  }
 }
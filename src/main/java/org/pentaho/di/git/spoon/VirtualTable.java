@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.gui.ConstUI;
+import org.pentaho.di.ui.util.SwtSvgImageUtil;
+import org.pentaho.ui.xul.components.XulTreeCol;
+import org.pentaho.ui.xul.containers.XulTree;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * An SWT.VIRTUAL table that takes the place of a XUL tree.
+ * Binding elements to a XUL tree creates a row with a cell per column for every element up front,
+ * whereas a row of this table is materialized only when it is scrolled into view.
+ * Columns (i.e., label, flex, binding, image binding, and checkbox) are taken from the XUL tree,
+ * which is hidden, and the context menu is shared with it.
+ */
+public class VirtualTable<T> {
+
+  private final Table table;
+  private final List<XulTreeCol> columns = new ArrayList<XulTreeCol>();
+  private final Map<String, Method> getters = new HashMap<String, Method>();
+  private final Map<String, Image> images = new HashMap<String, Image>();
+  private List<T> elements = Collections.emptyList();
+  private Consumer<List<T>> selectionListener;
+  private Consumer<T> checkListener;
+  private IntConsumer dataListener;
+
+  public VirtualTable( XulTree tree ) {
+    this( createTable( tree ), getColumns( tree ) );
+  }
+
+  @VisibleForTesting
+  VirtualTable( Table table, List<XulTreeCol> columns ) {
+    this.table = table;
+    this.columns.addAll( columns );
+    table.addListener( SWT.Resize, event -> resizeColumns() );
+    table.addListener( SWT.SetData, event -> {
+      TableItem item = (TableItem) event.item;
+      int index = event.index;
+      if ( index < 0 || index >= elements.size() ) {
+        return;
+      }
+      populate( item, elements.get( index ) );
+      if ( dataListener != null ) {
+        dataListener.accept( index );
+      }
+    } );
+    table.addListener( SWT.Selection, event -> {
+      if ( event.detail == SWT.CHECK ) {
+        int index = table.indexOf( (TableItem) event.item );
+        if ( checkListener != null && index >= 0 && index < elements.size() ) {
+          checkListener.accept( elements.get( index ) );
+        }
+      } else if ( selectionListener != null ) {
+        selectionListener.accept( getSelectedElements() );
+      }
+    } );
+    table.addListener( SWT.Dispose, event -> images.values().forEach( Image::dispose ) );
+  }
+
+  private static List<XulTreeCol> getColumns( XulTree tree ) {
+    List<XulTreeCol> columns = new ArrayList<XulTreeCol>();
+    for ( int i = 0; i < tree.getColumns().getColumnCount(); i++ ) {
+      columns.add( tree.getColumns().getColumn( i ) );
+    }
+    return columns;
+  }
+
+  /**
+   * Create a table in the place of the XUL tree, which is hidden
+   * @param tree
+   * @return
+   */
+  private static Table createTable( XulTree tree ) {
+    Table original = ( (TableViewer) tree.getManagedObject() ).getTable();
+    List<XulTreeCol> columns = getColumns( tree );
+    boolean checkable = !columns.isEmpty() && "checkbox".equals( columns.get( 0 ).getType() );
+    int style = original.getStyle() & ( SWT.SINGLE | SWT.MULTI | SWT.FULL_SELECTION | SWT.BORDER | SWT.H_SCROLL | SWT.V_SCROLL );
+    Table table = new Table( original.getParent(), style | SWT.VIRTUAL | ( checkable ? SWT.CHECK : SWT.NONE ) );
+    table.setHeaderVisible( true );
+    table.setLinesVisible( original.getLinesVisible() );
+    table.setMenu( original.getMenu() );
+    columns.forEach( col -> new TableColumn( table, SWT.LEFT ).setText( Const.NVL( col.getLabel(), "" ) ) );
+
+    if ( original.getLayoutData() instanceof GridData ) {
+      GridData data = (GridData) original.getLayoutData();
+      GridData copy = new GridData( data.horizontalAlignment, data.verticalAlignment,
+          data.grabExcessHorizontalSpace, data.grabExcessVerticalSpace, data.horizontalSpan, data.verticalSpan );
+      copy.widthHint = data.widthHint;
+      copy.heightHint = data.heightHint;
+      table.setLayoutData( copy );
+      data.exclude = true;
+    }
+    table.moveAbove( original );
+    original.setVisible( false );
+    table.getParent().layout();
+    return table;
+  }
+
+  /**
+   * Replace all the rows. The selection is cleared.
+   * @param elements which are kept by reference, see {@link #elementsAdded()}
+   */
+  public void setElements( List<T> elements ) {
+    this.elements = elements == null ? Collections.<T>emptyList() : elements;
+    table.deselectAll();
+    table.setItemCount( this.elements.size() );
+    table.clearAll();
+  }
+
+  /**
+   * Show elements appended to the list given to {@link #setElements(List)}
+   * without clearing the rows that are already materialized
+   */
+  public void elementsAdded() {
+    table.setItemCount( elements.size() );
+  }
+
+  public List<T> getSelectedElements() {
+    List<T> selected = new ArrayList<T>();
+    for ( int index : table.getSelectionIndices() ) {
+      selected.add( elements.get( index ) );
+    }
+    return selected;
+  }
+
+  /**
+   * @param listener called with the selected elements when the user changes the selection
+   */
+  public void setSelectionListener( Consumer<List<T>> listener ) {
+    this.selectionListener = listener;
+  }
+
+  /**
+   * @param listener called with the element whose checkbox has been clicked
+   */
+  public void setCheckListener( Consumer<T> listener ) {
+    this.checkListener = listener;
+  }
+
+  /**
+   * @param listener called with the index of a row when it is materialized (e.g., to load the next page)
+   */
+  public void setDataListener( IntConsumer listener ) {
+    this.dataListener = listener;
+  }
+
+  public Table getTable() {
+    return table;
+  }
+
+  private void populate( TableItem item, T element ) {
+    for ( int i = 0; i < columns.size(); i++ ) {
+      XulTreeCol col = columns.get( i );
+      Object value = getValue( element, col.getBinding() );
+      if ( "checkbox".equals( col.getType() ) ) {
+        item.setChecked( Boolean.TRUE.equals( value ) );
+      } else {
+        item.setText( i, value == null ? "" : value.toString() );
+      }
+      Object image = getValue( element, col.getImagebinding() );
+      if ( image != null && !image.toString().isEmpty() ) {
+        item.setImage( i, getImage( image.toString() ) );
+      }
+    }
+  }
+
+  /**
+   * Distribute the width among columns in proportion to their flex as the XUL tree does
+   */
+  private void resizeColumns() {
+    int totalFlex = columns.stream().mapToInt( col -> Math.max( col.getFlex(), 1 ) ).sum();
+    int width = table.getClientArea().width;
+    for ( int i = 0; i < columns.size(); i++ ) {
+      table.getColumn( i ).setWidth( width * Math.max( columns.get( i ).getFlex(), 1 ) / totalFlex );
+    }
+  }
+
+  private Object getValue( T element, String property ) {
+    if ( property == null || property.isEmpty() ) {
+      return null;
+    }
+    try {
+      Method getter = getters.get( property );
+      if ( getter == null ) {
+        String suffix = Character.toUpperCase( property.charAt( 0 ) ) + property.substring( 1 );
+        try {
+          getter = element.getClass().getMethod( "get" + suffix );
+        } catch ( NoSuchMethodException e ) {
+          getter = element.getClass().getMethod( "is" + suffix );
+        }
+        getters.put( property, getter );
+      }
+      return getter.invoke( element );
+    } catch ( Exception e ) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  private Image getImage( String location ) {
+    return images.computeIfAbsent( location, key -> SwtSvgImageUtil.getImage( table.getDisplay(),
+        getClass().getClassLoader(), key, ConstUI.ICON_SIZE, ConstUI.ICON_SIZE ) );
+  }
+}
@@ -23,6 +23,7 @@ import org.eclipse.jgit.transport.URIish;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Label;
@@ -36,6 +37,10 @@ public class CloneRepositoryDialog extends EditRepositoryDialog {
   private String url;
   private Text cloneAsText;
   private String cloneAs;
+  private Text branchText;
+  private String branch;
+  private Button singleBranchButton;
+  private boolean singleBranch;
 
   public CloneRepositoryDialog( Shell parentShell, GitRepository repo ) {
     super( parentShell, repo );
@@ -61,6 +66,22 @@ public class CloneRepositoryDialog extends EditRepositoryDialog {
     cloneAsText = new Text( comp, SWT.SINGLE | SWT.BORDER );
     cloneAsText.setLayoutData( new GridData( GridData.FILL, GridData.CENTER, true, false, 2, 1 ) );
 
+    Label branchLabel = new Label( comp, SWT.RIGHT );
+    branchLabel.setText( "Branch: " );
+    branchLabel.setLayoutData( new GridData( GridData.END, GridData.CENTER, false, false ) );
+    branchText = new Text( comp, SWT.SINGLE | SWT.BORDER );
+    branchText.setToolTipText( "Branch to check out. The default branch of the remote if empty." );
+    branchText.setLayoutData( new GridData( GridData.FILL, GridData.CENTER, true, false, 2, 1 ) );
+
+    new Label( comp, SWT.NONE );
+    singleBranchButton = new Button( comp, SWT.CHECK );
+    singleBranchButton.setText( "Clone only this branch" );
+    singleBranchButton.setEnabled( false );
+    singleBranchButton.setLayoutData( new GridData( GridData.FILL, GridData.CENTER, true, false, 2, 1 ) );
+    branchText.addModifyListener( event -> {
+      singleBranchButton.setEnabled( !branchText.getText().trim().isEmpty() );
+    } );
+
     urlText.addModifyListener( event -> {
       String url = ( (Text) event.widget ).getText();
       URIish uri;
@@ -79,6 +100,8 @@ public class CloneRepositoryDialog extends EditRepositoryDialog {
   protected void okPressed() {
     url = urlText.getText();
     cloneAs = cloneAsText.getText();
+    branch = branchText.getText().trim();
+    singleBranch = singleBranchButton.getEnabled() && singleBranchButton.getSelection();
     super.okPressed();
     repo.setDirectory( getDirectory() + File.separator + cloneAs );
   }
@@ -90,4 +113,15 @@ public class CloneRepositoryDialog extends EditRepositoryDialog {
   public String getCloneAs() {
     return cloneAs;
   }
+
+  /**
+   * @return the branch to check out, or an empty string for the default branch of the remote
+   */
+  public String getBranch() {
+    return branch;
+  }
+
+  public boolean isSingleBranch() {
+    return singleBranch;
+  }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.dialog;
+
+import org.eclipse.jface.dialogs.Dialog;
+import org.eclipse.jface.dialogs.IDialogConstants;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.pentaho.di.git.spoon.GitController;
+import org.pentaho.di.git.spoon.model.VcsMetrics;
+import org.pentaho.di.i18n.BaseMessages;
+
+/**
+ * Show the timing metrics of VCS operations recorded in this session
+ */
+public class DiagnosticsDialog extends Dialog {
+
+  private static final Class<?> PKG = GitController.class;
+  private static final int RESET_ID = IDialogConstants.CLIENT_ID + 1;
+
+  private final VcsMetrics metrics;
+  private Table table;
+
+  public DiagnosticsDialog( Shell parentShell, VcsMetrics metrics ) {
+    super( parentShell );
+    this.metrics = metrics;
+    setShellStyle( getShellStyle() | SWT.RESIZE );
+  }
+
+  @Override
+  protected void configureShell( Shell newShell ) {
+    super.configureShell( newShell );
+    newShell.setText( BaseMessages.getString( PKG, "Git.Diagnostics" ) );
+  }
+
+  @Override
+  protected Control createDialogArea( Composite parent ) {
+    Composite comp = (Composite) super.createDialogArea( parent );
+
+    table = new Table( comp, SWT.BORDER | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL );
+    table.setHeaderVisible( true );
+    table.setLinesVisible( true );
+    table.setLayoutData( new GridData( GridData.FILL, GridData.FILL, true, true ) );
+    String[] headers = {
+      BaseMessages.getString( PKG, "Git.Diagnostics.Operation" ),
+      BaseMessages.getString( PKG, "Git.Diagnostics.Count" ),
+      BaseMessages.getString( PKG, "Git.Diagnostics.Errors" ),
+      BaseMessages.getString( PKG, "Git.Diagnostics.Mean" ),
+      BaseMessages.getString( PKG, "Git.Diagnostics.P95" ),
+      BaseMessages.getString( PKG, "Git.Diagnostics.Max" ) };
+    for ( int i = 0; i < headers.length; i++ ) {
+      TableColumn column = new TableColumn( table, i == 0 ? SWT.LEFT : SWT.RIGHT );
+      column.setText( headers[i] );
+      column.setWidth( i == 0 ? 300 : 80 );
+    }
+    refresh();
+    return comp;
+  }
+
+  @Override
+  protected void createButtonsForButtonBar( Composite parent ) {
+    createButton( parent, RESET_ID, BaseMessages.getString( PKG, "Git.Diagnostics.Reset" ), false );
+    createButton( parent, IDialogConstants.OK_ID, IDialogConstants.OK_LABEL, true );
+  }
+
+  @Override
+  protected void buttonPressed( int buttonId ) {
+    if ( buttonId == RESET_ID ) {
+      metrics.reset();
+      refresh();
+    } else {
+      super.buttonPressed( buttonId );
+    }
+  }
+
+  private void refresh() {
+    table.removeAll();
+    metrics.getOperations().forEach( ( operation, stats ) -> {
+      TableItem item = new TableItem( table, SWT.NONE );
+      item.setText( new String[] {
+        operation,
+        String.valueOf( stats.getCount() ),
+        String.valueOf( stats.getErrors() ),
+        String.format( "%.1f", stats.getMeanMillis() ),
+        String.format( "%.1f", stats.getPercentileMillis( 0.95 ) ),
+        String.format( "%.1f", stats.getMaxMillis() ) } );
+    } );
+  }
+
+  @Override
+  public Point getInitialSize() {
+    return new Point( 800, 500 );
+  }
+}
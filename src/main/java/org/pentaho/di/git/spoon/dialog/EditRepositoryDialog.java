@@ -37,6 +37,7 @@ import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
 import org.pentaho.di.git.spoon.model.GitRepository;
 import org.pentaho.di.git.spoon.model.IVCS;
+import org.pentaho.di.git.spoon.model.ParallelRenameDetector;
 import org.pentaho.di.ui.core.PropsUI;
 import org.pentaho.di.ui.core.gui.WindowProperty;
 import org.pentaho.di.ui.core.widget.TextVar;
@@ -48,6 +49,11 @@ public class EditRepositoryDialog extends Dialog {
   private TextVar directoryText;
   private String directory;
   private Combo typeCombo;
+  private Button largeRepositoryButton;
+  private Text maxUntrackedFilesText;
+  private Text renameLimitText;
+  private Text renameScoreText;
+  private Text skippedDirectoriesText;
 
   protected PropsUI props;
   protected GitRepository repo;
@@ -142,6 +148,42 @@ public class EditRepositoryDialog extends Dialog {
       }
     }
     typeCombo.setLayoutData( new GridData( GridData.FILL, GridData.CENTER, true, false, 2, 1 ) );
+
+    new Label( comp, SWT.NONE );
+    largeRepositoryButton = new Button( comp, SWT.CHECK );
+    largeRepositoryButton.setText( "Large repository (limit scanning for untracked files)" );
+    largeRepositoryButton.setLayoutData( new GridData( GridData.FILL, GridData.CENTER, true, false, 2, 1 ) );
+    largeRepositoryButton.setSelection( repo.isLargeRepository() );
+
+    Label maxUntrackedFilesLabel = new Label( comp, SWT.RIGHT );
+    maxUntrackedFilesLabel.setText( "Max untracked files: " );
+    maxUntrackedFilesLabel.setLayoutData( new GridData( GridData.END, GridData.CENTER, false, false ) );
+    maxUntrackedFilesText = new Text( comp, SWT.SINGLE | SWT.BORDER );
+    maxUntrackedFilesText.setLayoutData( new GridData( GridData.FILL, GridData.CENTER, true, false, 2, 1 ) );
+    maxUntrackedFilesText.setText( String.valueOf( repo.getMaxUntrackedFiles() ) );
+
+    Label skippedDirectoriesLabel = new Label( comp, SWT.RIGHT );
+    skippedDirectoriesLabel.setText( "Skipped directories: " );
+    skippedDirectoriesLabel.setLayoutData( new GridData( GridData.END, GridData.CENTER, false, false ) );
+    skippedDirectoriesText = new Text( comp, SWT.SINGLE | SWT.BORDER );
+    skippedDirectoriesText.setLayoutData( new GridData( GridData.FILL, GridData.CENTER, true, false, 2, 1 ) );
+    skippedDirectoriesText.setText( Const.NVL( repo.getSkippedDirectories(), "" ) );
+    skippedDirectoriesText.setToolTipText( "Comma-separated, e.g., node_modules, data/archive" );
+
+    Label renameLimitLabel = new Label( comp, SWT.RIGHT );
+    renameLimitLabel.setText( "Rename limit: " );
+    renameLimitLabel.setLayoutData( new GridData( GridData.END, GridData.CENTER, false, false ) );
+    renameLimitText = new Text( comp, SWT.SINGLE | SWT.BORDER );
+    renameLimitText.setLayoutData( new GridData( GridData.FILL, GridData.CENTER, true, false, 2, 1 ) );
+    renameLimitText.setText( String.valueOf( repo.getRenameLimit() ) );
+    renameLimitText.setToolTipText( "Max number of deleted or added files compared by content to find renames" );
+
+    Label renameScoreLabel = new Label( comp, SWT.RIGHT );
+    renameScoreLabel.setText( "Rename similarity (%): " );
+    renameScoreLabel.setLayoutData( new GridData( GridData.END, GridData.CENTER, false, false ) );
+    renameScoreText = new Text( comp, SWT.SINGLE | SWT.BORDER );
+    renameScoreText.setLayoutData( new GridData( GridData.FILL, GridData.CENTER, true, false, 2, 1 ) );
+    renameScoreText.setText( String.valueOf( repo.getRenameScore() ) );
     return comp;
   }
 
@@ -151,6 +193,11 @@ public class EditRepositoryDialog extends Dialog {
     repo.setDescription( descText.getText() );
     repo.setDirectory( directoryText.getText() );
     repo.setType( typeCombo.getText() );
+    repo.setLargeRepository( largeRepositoryButton.getSelection() );
+    repo.setMaxUntrackedFiles( Const.toInt( maxUntrackedFilesText.getText(), GitRepository.DEFAULT_MAX_UNTRACKED_FILES ) );
+    repo.setSkippedDirectories( skippedDirectoriesText.getText() );
+    repo.setRenameLimit( Const.toInt( renameLimitText.getText(), ParallelRenameDetector.DEFAULT_RENAME_LIMIT ) );
+    repo.setRenameScore( Const.toInt( renameScoreText.getText(), ParallelRenameDetector.DEFAULT_RENAME_SCORE ) );
     directory = directoryText.getText();
     super.okPressed();
   }
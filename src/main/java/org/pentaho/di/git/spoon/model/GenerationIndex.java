@@ -0,0 +1,419 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Generation numbers of commits: 1 for a root commit, otherwise 1 + the max of its parents'.
+ * A commit can only reach commits of lower generations, which bounds the walk of {@link #countAheadBehind}.
+ * JGit (as of 4.9) does not read commit-graph files, so they are computed here,
+ * which is safe because commits never change. Only the commits not seen yet are parsed when new ones come in.
+ * The index can be saved to a file so that the whole history is walked only once per repository, not once per session.
+ * The file is sorted by commit id with a fan-out table like a pack index,
+ * so that opening it reads 1 KB and a lookup reads a few entries, however long the history is.
+ */
+public class GenerationIndex implements Closeable {
+
+  private static final int MAGIC = 0x50474932; // "PGI2"
+  private static final int FANOUT_SIZE = 256;
+  private static final int HEADER_SIZE = 8 + 4 * FANOUT_SIZE;
+  private static final int ENTRY_SIZE = Constants.OBJECT_ID_LENGTH + 4;
+
+  /**
+   * Entries computed since the file was opened or saved
+   */
+  private final ObjectIdOwnerMap<Entry> generations = new ObjectIdOwnerMap<Entry>();
+  private File savedFile;
+  private FileChannel savedChannel;
+  private int[] savedFanout;
+  private final ByteBuffer entryBuffer = ByteBuffer.allocate( ENTRY_SIZE );
+  private volatile boolean cancelled = false;
+
+  private static class Entry extends ObjectIdOwnerMap.Entry {
+    private final int generation;
+
+    Entry( AnyObjectId id, int generation ) {
+      super( id );
+      this.generation = generation;
+    }
+  }
+
+  /**
+   * @param walk used to parse commits that are not indexed yet
+   * @param commit
+   * @return generation number
+   * @throws IOException
+   * @throws CancellationException if {@link #cancel()} has been called
+   */
+  public synchronized int getGeneration( RevWalk walk, RevCommit commit ) throws IOException {
+    int generation = lookup( commit );
+    if ( generation > 0 ) {
+      return generation;
+    }
+    // Iterative post-order DFS as histories are far deeper than the call stack
+    Deque<RevCommit> stack = new ArrayDeque<RevCommit>();
+    stack.push( commit );
+    while ( !stack.isEmpty() ) {
+      checkCancelled();
+      RevCommit c = stack.peek();
+      if ( lookup( c ) > 0 ) {
+        stack.pop();
+        continue;
+      }
+      walk.parseHeaders( c );
+      generation = 1;
+      boolean ready = true;
+      for ( RevCommit parent : c.getParents() ) {
+        int parentGeneration = lookup( parent );
+        if ( parentGeneration == 0 ) {
+          stack.push( parent );
+          ready = false;
+        } else if ( ready ) {
+          generation = Math.max( generation, parentGeneration + 1 );
+        }
+      }
+      if ( ready ) {
+        generations.add( new Entry( c, generation ) );
+        stack.pop();
+      }
+    }
+    return lookup( commit );
+  }
+
+  /**
+   * @param id
+   * @return the generation number, or 0 if not indexed
+   * @throws IOException
+   */
+  private int lookup( AnyObjectId id ) throws IOException {
+    Entry entry = generations.get( id );
+    if ( entry != null ) {
+      return entry.generation;
+    }
+    if ( savedChannel == null ) {
+      return 0;
+    }
+    int firstByte = id.getFirstByte();
+    int low = firstByte == 0 ? 0 : savedFanout[firstByte - 1];
+    int high = savedFanout[firstByte];
+    while ( low < high ) {
+      int mid = ( low + high ) >>> 1;
+      readEntry( mid );
+      int cmp = id.compareTo( entryBuffer.array(), 0 );
+      if ( cmp < 0 ) {
+        high = mid;
+      } else if ( cmp > 0 ) {
+        low = mid + 1;
+      } else {
+        return entryBuffer.getInt( Constants.OBJECT_ID_LENGTH );
+      }
+    }
+    return 0;
+  }
+
+  private void readEntry( int position ) throws IOException {
+    entryBuffer.clear();
+    long offset = HEADER_SIZE + (long) position * ENTRY_SIZE;
+    while ( entryBuffer.hasRemaining() ) {
+      if ( savedChannel.read( entryBuffer, offset + entryBuffer.position() ) < 0 ) {
+        throw new EOFException();
+      }
+    }
+  }
+
+  /**
+   * @return the number of commits indexed, including those in the file
+   */
+  public synchronized int size() {
+    return generations.size() + getSavedCount();
+  }
+
+  private int getSavedCount() {
+    return savedChannel == null ? 0 : savedFanout[FANOUT_SIZE - 1];
+  }
+
+  /**
+   * Stop a walk in progress on another thread (e.g., when the repository is being closed).
+   * Later walks fail as well, while the entries computed so far can still be saved.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  private void checkCancelled() {
+    if ( cancelled ) {
+      throw new CancellationException( "Cancelled" );
+    }
+  }
+
+  /**
+   * Forget all the entries and close the file
+   */
+  @Override
+  public synchronized void close() {
+    generations.clear();
+    closeSaved();
+  }
+
+  /**
+   * @return the number of commits indexed since the last {@link #load(File)} or {@link #save(File, ObjectReader)}
+   */
+  public synchronized int getUnsavedCount() {
+    return generations.size();
+  }
+
+  /**
+   * Use the entries saved by {@link #save(File, ObjectReader)}.
+   * Only the fan-out table is read here; entries are read on lookup.
+   * @param file which may not exist
+   * @throws IOException
+   */
+  public synchronized void load( File file ) throws IOException {
+    closeSaved();
+    if ( !file.exists() ) {
+      return;
+    }
+    FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+    try {
+      ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+      while ( header.hasRemaining() ) {
+        if ( channel.read( header ) < 0 ) {
+          throw new EOFException( "Truncated: " + file );
+        }
+      }
+      header.flip();
+      if ( header.getInt() != MAGIC ) {
+        throw new IOException( "Unknown format: " + file );
+      }
+      int count = header.getInt();
+      int[] fanout = new int[FANOUT_SIZE];
+      header.asIntBuffer().get( fanout );
+      if ( fanout[FANOUT_SIZE - 1] != count || channel.size() != HEADER_SIZE + (long) count * ENTRY_SIZE ) {
+        throw new IOException( "Truncated: " + file );
+      }
+      savedChannel = channel;
+      savedFanout = fanout;
+      savedFile = file;
+    } finally {
+      if ( savedChannel != channel ) {
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * Merge the computed entries into the file, replacing it atomically.
+   * Entries of commits that no longer exist (e.g., rebased and garbage collected) are dropped,
+   * so the file does not grow beyond the commits in the repository.
+   * @param file
+   * @param reader to check if commits exist
+   * @throws IOException
+   */
+  public synchronized void save( File file, ObjectReader reader ) throws IOException {
+    List<Entry> unsaved = new ArrayList<Entry>( generations.size() );
+    generations.forEach( unsaved::add );
+    unsaved.sort( null );
+    File tmp = new File( file.getPath() + ".tmp" );
+    int count = 0;
+    int[] fanout = new int[FANOUT_SIZE];
+    try ( RandomAccessFile out = new RandomAccessFile( tmp, "rw" );
+        DataInputStream in = savedFile == null ? null : new DataInputStream( new BufferedInputStream( new FileInputStream( savedFile ) ) ) ) {
+      out.setLength( 0 );
+      out.seek( HEADER_SIZE );
+      DataOutputStream data = new DataOutputStream( new BufferedOutputStream( Channels.newOutputStream( out.getChannel() ) ) );
+      byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+      int saved = getSavedCount();
+      if ( in != null ) {
+        in.skipBytes( HEADER_SIZE );
+      }
+      ObjectId savedId = null;
+      int savedGeneration = 0;
+      int i = 0;
+      int j = 0;
+      while ( i < saved || savedId != null || j < unsaved.size() ) {
+        if ( savedId == null && i < saved ) {
+          in.readFully( raw );
+          savedId = ObjectId.fromRaw( raw );
+          savedGeneration = in.readInt();
+          i++;
+        }
+        int cmp = savedId == null ? 1 : j == unsaved.size() ? -1 : savedId.compareTo( unsaved.get( j ) );
+        ObjectId id;
+        int generation;
+        if ( cmp <= 0 ) {
+          id = savedId;
+          generation = savedGeneration;
+          savedId = null;
+          j += cmp == 0 ? 1 : 0;
+        } else {
+          id = unsaved.get( j ).copy();
+          generation = unsaved.get( j++ ).generation;
+        }
+        if ( !reader.has( id ) ) {
+          continue;
+        }
+        id.copyRawTo( raw, 0 );
+        data.write( raw );
+        data.writeInt( generation );
+        fanout[id.getFirstByte()]++;
+        count++;
+      }
+      data.flush();
+      for ( int b = 1; b < FANOUT_SIZE; b++ ) {
+        fanout[b] += fanout[b - 1];
+      }
+      out.seek( 0 );
+      out.writeInt( MAGIC );
+      out.writeInt( count );
+      for ( int n : fanout ) {
+        out.writeInt( n );
+      }
+    }
+    closeSaved();
+    Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    generations.clear();
+    load( file );
+  }
+
+  private void closeSaved() {
+    if ( savedChannel != null ) {
+      try {
+        savedChannel.close();
+      } catch ( IOException e ) {
+        e.printStackTrace();
+      }
+      savedChannel = null;
+      savedFanout = null;
+      savedFile = null;
+    }
+  }
+
+  /**
+   * Count commits reachable from one tip but not the other.
+   * Commits are visited in the descending order of generation, so that a commit is counted
+   * only after all its descendants have been visited, and the walk stops
+   * as soon as every commit left to visit is reachable from both tips.
+   * @param walk
+   * @param local e.g., the current branch
+   * @param upstream e.g., its remote tracking branch
+   * @return {ahead, behind}
+   * @throws IOException
+   * @throws CancellationException if {@link #cancel()} has been called
+   */
+  public int[] countAheadBehind( RevWalk walk, RevCommit local, RevCommit upstream ) throws IOException {
+    RevFlag ahead = walk.newFlag( "AHEAD" );
+    RevFlag behind = walk.newFlag( "BEHIND" );
+    RevFlag queued = walk.newFlag( "QUEUED" );
+    try {
+      PriorityQueue<Node> queue = new PriorityQueue<Node>();
+      local.add( ahead );
+      upstream.add( behind );
+      int stale = 0; // queued commits reachable from both
+      for ( RevCommit tip : new RevCommit[] { local, upstream } ) {
+        if ( !tip.has( queued ) ) {
+          tip.add( queued );
+          queue.add( new Node( tip, getGeneration( walk, tip ) ) );
+          stale += tip.has( ahead ) && tip.has( behind ) ? 1 : 0;
+        }
+      }
+      int aheadCount = 0;
+      int behindCount = 0;
+      while ( !queue.isEmpty() && stale < queue.size() ) {
+        checkCancelled();
+        RevCommit c = queue.poll().commit;
+        walk.parseHeaders( c );
+        boolean isAhead = c.has( ahead );
+        boolean isBehind = c.has( behind );
+        if ( isAhead && isBehind ) {
+          stale--;
+        } else if ( isAhead ) {
+          aheadCount++;
+        } else {
+          behindCount++;
+        }
+        for ( RevCommit parent : c.getParents() ) {
+          boolean wasStale = parent.has( ahead ) && parent.has( behind );
+          if ( isAhead ) {
+            parent.add( ahead );
+          }
+          if ( isBehind ) {
+            parent.add( behind );
+          }
+          boolean isStale = parent.has( ahead ) && parent.has( behind );
+          if ( !parent.has( queued ) ) {
+            parent.add( queued );
+            queue.add( new Node( parent, getGeneration( walk, parent ) ) );
+            stale += isStale ? 1 : 0;
+          } else if ( isStale && !wasStale ) {
+            stale++;
+          }
+        }
+      }
+      return new int[] { aheadCount, behindCount };
+    } finally {
+      walk.disposeFlag( ahead );
+      walk.disposeFlag( behind );
+      walk.disposeFlag( queued );
+    }
+  }
+
+  private static class Node implements Comparable<Node> {
+    private final RevCommit commit;
+    private final int generation;
+
+    Node( RevCommit commit, int generation ) {
+      this.commit = commit;
+      this.generation = generation;
+    }
+
+    @Override
+    public int compareTo( Node other ) {
+      return Integer.compare( other.generation, generation );
+    }
+  }
+}
@@ -16,7 +16,13 @@
 
 package org.pentaho.di.git.spoon.model;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
 import org.pentaho.metastore.persist.MetaStoreAttribute;
@@ -27,6 +33,8 @@ import org.pentaho.metastore.persist.MetaStoreElementType;
   description = "This defines a Git repository" )
 public class GitRepository {
 
+  public static final int DEFAULT_MAX_UNTRACKED_FILES = 1000;
+
   @MetaStoreAttribute( key = "name" )
   private String name;
 
@@ -75,6 +83,91 @@ public class GitRepository {
     this.type = type;
   }
 
+  @MetaStoreAttribute( key = "large_repository" )
+  private boolean largeRepository;
+
+  /**
+   * In the large repository mode, untracked files are listed only up to {@link #getMaxUntrackedFiles()},
+   * an untracked directory is listed as a single entry, and {@link #getSkippedDirectories()} are not scanned.
+   * @return
+   */
+  public boolean isLargeRepository() {
+    return largeRepository;
+  }
+
+  public void setLargeRepository( boolean largeRepository ) {
+    this.largeRepository = largeRepository;
+  }
+
+  @MetaStoreAttribute( key = "max_untracked_files" )
+  private int maxUntrackedFiles = DEFAULT_MAX_UNTRACKED_FILES;
+
+  public int getMaxUntrackedFiles() {
+    return maxUntrackedFiles;
+  }
+
+  public void setMaxUntrackedFiles( int maxUntrackedFiles ) {
+    this.maxUntrackedFiles = maxUntrackedFiles;
+  }
+
+  @MetaStoreAttribute( key = "skipped_directories" )
+  private String skippedDirectories;
+
+  /**
+   * Get comma-separated directories that are not scanned for changes in the large repository mode.
+   * A name without a slash matches a directory at any depth,
+   * otherwise it is a path relative to the working tree.
+   * @return
+   */
+  public String getSkippedDirectories() {
+    return skippedDirectories;
+  }
+
+  public void setSkippedDirectories( String skippedDirectories ) {
+    this.skippedDirectories = skippedDirectories;
+  }
+
+  @MetaStoreAttribute( key = "rename_limit" )
+  private int renameLimit = ParallelRenameDetector.DEFAULT_RENAME_LIMIT;
+
+  /**
+   * Get the max number of deleted or added files between two commits that are compared by content to find renames.
+   * Beyond this, only files with identical content are paired and the rest are listed as deletes and adds.
+   * @return
+   */
+  public int getRenameLimit() {
+    return renameLimit;
+  }
+
+  public void setRenameLimit( int renameLimit ) {
+    this.renameLimit = renameLimit;
+  }
+
+  @MetaStoreAttribute( key = "rename_score" )
+  private int renameScore = ParallelRenameDetector.DEFAULT_RENAME_SCORE;
+
+  /**
+   * Get the min similarity in percent for a deleted and an added file to be a rename.
+   * @return
+   */
+  public int getRenameScore() {
+    return renameScore;
+  }
+
+  public void setRenameScore( int renameScore ) {
+    this.renameScore = renameScore;
+  }
+
+  public List<String> getSkippedDirectoryList() {
+    if ( Strings.isNullOrEmpty( skippedDirectories ) ) {
+      return Collections.emptyList();
+    }
+    return Arrays.stream( skippedDirectories.split( "," ) )
+      .map( dir -> dir.trim().replace( '\\', '/' ).replaceAll( "^/+|/+$", "" ) )
+      .filter( dir -> !dir.isEmpty() )
+      .collect( Collectors.toList() );
+  }
+
   /**
    * Get a directory path in the current environment.
    * Unlike {@link #getDirectory()}, all variables are resolved.
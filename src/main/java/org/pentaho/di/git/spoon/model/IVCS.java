@@ -16,9 +16,12 @@
 
 package org.pentaho.di.git.spoon.model;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
 
+import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.swt.widgets.Shell;
 import org.pentaho.di.ui.repository.pur.repositoryexplorer.model.UIRepositoryObjectRevisions;
 
@@ -32,6 +35,10 @@ public interface IVCS {
   String TYPE_BRANCH = "branch";
   String TYPE_REMOTE = "remote";
   String TYPE_COMMIT = "commit";
+  /**
+   * The last line of a diff that has been cut off by a budget
+   */
+  String DIFF_TRUNCATED = "\\ Diff truncated\n";
 
   /**
    * Get the name of implementation (e.g., Git, SVN)
@@ -47,6 +54,12 @@ public interface IVCS {
    */
   boolean isClean();
 
+  /**
+   * Make the next call reflect changes made outside of this plugin (e.g., on refresh).
+   * An implementation that tracks changed paths may re-scan only them.
+   */
+  void invalidateStatus();
+
   /**
    * Get the author name for a commit
    * @param commitId
@@ -90,6 +103,13 @@ public interface IVCS {
    */
   String getBranch();
 
+  /**
+   * Count commits of the current branch that are not in its upstream (e.g., origin/master) and vice versa.
+   * The upstream is as of the last fetch, so no network access is involved.
+   * @return {ahead, behind} or null if the current branch has no upstream
+   */
+  int[] getAheadBehind();
+
   /**
    * Get a list of local branches
    * @return
@@ -114,6 +134,16 @@ public interface IVCS {
 
   UIRepositoryObjectRevisions getRevisions();
 
+  /**
+   * Get a page of revisions, newest first.
+   * The WORKINGTREE revision is only included in the first page (i.e., skip == 0)
+   * and is not counted in skip or limit.
+   * @param skip the number of revisions to skip
+   * @param limit the maximum number of revisions to return
+   * @return
+   */
+  UIRepositoryObjectRevisions getRevisions( int skip, int limit );
+
   void setCredential( String username, String password );
 
   /**
@@ -141,14 +171,32 @@ public interface IVCS {
 
   void initRepo( String baseDirectory ) throws Exception;
 
+  /**
+   * Apply the per-repository settings (e.g., the large repository mode) before {@link #openRepo(String)}
+   * @param repo
+   */
+  void configure( GitRepository repo );
+
   void openRepo( String baseDirectory ) throws Exception;
 
   void closeRepo();
 
   void add( String filepattern );
 
+  /**
+   * Add files to the index in a single operation
+   * @param filepatterns
+   */
+  void add( Collection<String> filepatterns );
+
   void rm( String filepattern );
 
+  /**
+   * Remove files from the index in a single operation
+   * @param filepatterns
+   */
+  void rm( Collection<String> filepatterns );
+
   void reset( String name );
 
   /**
@@ -158,6 +206,12 @@ public interface IVCS {
    */
   void resetPath( String path );
 
+  /**
+   * Reset files to HEAD in a single operation
+   * @param paths
+   */
+  void resetPaths( Collection<String> paths );
+
   /**
    * Equivalent of <tt>git fetch; git merge --ff</tt>
    *
@@ -175,8 +229,61 @@ public interface IVCS {
 
   String diff( String oldCommitId, String newCommitId, String file );
 
+  /**
+   * @param oldCommitId
+   * @param newCommitId
+   * @param file
+   * @param full if false, the diff may be cut off by the byte and time budgets (or skipped for a large file),
+   * in which case it ends with {@link #DIFF_TRUNCATED}
+   * @return
+   */
+  String diff( String oldCommitId, String newCommitId, String file, boolean full );
+
+  /**
+   * Same as {@link #diff(String, String, String, boolean)} but streams the patch into the given text
+   * instead of returning it as a whole, which matters for a large patch (e.g., a full diff)
+   * @param oldCommitId
+   * @param newCommitId
+   * @param file
+   * @param full
+   * @param out
+   * @throws IOException
+   */
+  void diff( String oldCommitId, String newCommitId, String file, boolean full, Appendable out ) throws IOException;
+
   InputStream open( String file, String commitId );
 
+  /**
+   * Receives the content of each file opened by {@link IVCS#open(Collection, String, ContentConsumer)}
+   */
+  @FunctionalInterface
+  interface ContentConsumer {
+    /**
+     * @param file
+     * @param content which is closed after this returns
+     * @throws IOException
+     */
+    void accept( String file, InputStream content ) throws IOException;
+  }
+
+  /**
+   * Open many files at a commit at once, which is cheaper than calling {@link #open(String, String)} for each.
+   * Files that do not exist at the commit are not passed to the consumer.
+   * @param files
+   * @param commitId
+   * @param consumer
+   * @throws IOException
+   */
+  void open( Collection<String> files, String commitId, ContentConsumer consumer ) throws IOException;
+
+  /**
+   * Get an id that changes whenever the content of a file at a commit changes (e.g., the blob id)
+   * @param file
+   * @param commitId other than WORKINGTREE
+   * @return null if there is no such stable id
+   */
+  String getContentId( String file, String commitId );
+
   /**
    * Checkout a commit
    * @param name
@@ -193,6 +300,12 @@ public interface IVCS {
    */
   void revertPath( String path );
 
+  /**
+   * Revert files to the last commited state in a single operation
+   * @param paths
+   */
+  void revertPaths( Collection<String> paths );
+
   boolean createBranch( String value );
 
   boolean deleteBranch( String name, boolean force );
@@ -205,9 +318,26 @@ public interface IVCS {
 
   void setShell( Shell shell );
 
+  /**
+   * Set a monitor to report the progress of network operations (e.g., pull, push, clone) to
+   * and to be checked for cancellation
+   * @param monitor null to stop reporting
+   */
+  void setProgressMonitor( ProgressMonitor monitor );
+
   boolean merge();
 
   boolean cloneRepo( String directory, String url );
 
+  /**
+   * Clone a repository
+   * @param directory
+   * @param url
+   * @param branch the branch to check out (e.g., master). Can be null for the default branch of the remote.
+   * @param singleBranch fetch only the given branch instead of all the branches. Ignored if branch is null.
+   * @return true on success
+   */
+  boolean cloneRepo( String directory, String url, String branch, boolean singleBranch );
+
   boolean rollback( String name );
 }
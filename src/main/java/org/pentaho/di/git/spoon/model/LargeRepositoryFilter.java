@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Bound the cost of a status scan in the large repository mode.
+ * Skipped directories are not walked, an untracked directory is reported as a single entry
+ * without walking into it, and untracked entries above the limit are not reported.
+ * It is meant to be set to {@link org.eclipse.jgit.lib.IndexDiff#setFilter(TreeFilter)},
+ * which excludes ignored files before this filter.
+ */
+public class LargeRepositoryFilter extends TreeFilter {
+
+  // The order of trees in IndexDiff
+  private static final int TREE = 0;
+  private static final int INDEX = 1;
+  private static final int WORKDIR = 2;
+
+  private final List<String> skippedDirectories;
+  private final int maxUntrackedFiles;
+  private final List<String> untrackedDirectories = new ArrayList<String>();
+  private int untrackedCount = 0;
+
+  /**
+   * @param skippedDirectories see {@link GitRepository#getSkippedDirectories()}
+   * @param maxUntrackedFiles the maximum number of untracked files and directories to report
+   */
+  public LargeRepositoryFilter( List<String> skippedDirectories, int maxUntrackedFiles ) {
+    this.skippedDirectories = skippedDirectories;
+    this.maxUntrackedFiles = maxUntrackedFiles;
+  }
+
+  @Override
+  public boolean include( TreeWalk walker ) throws IOException {
+    boolean untracked = walker.getRawMode( TREE ) == FileMode.TYPE_MISSING
+        && walker.getRawMode( INDEX ) == FileMode.TYPE_MISSING;
+    if ( untracked && isIgnored( walker ) ) {
+      // Neither collapsed into an untracked directory nor counted against the limit
+      return false;
+    }
+    if ( walker.isSubtree() ) {
+      if ( isSkipped( skippedDirectories, walker.getPathString() ) ) {
+        return false;
+      }
+      if ( untracked ) {
+        if ( untrackedCount < maxUntrackedFiles ) {
+          untrackedCount++;
+          untrackedDirectories.add( walker.getPathString() + "/" );
+        }
+        return false;
+      }
+      return true;
+    }
+    if ( untracked ) {
+      if ( untrackedCount >= maxUntrackedFiles ) {
+        return false;
+      }
+      untrackedCount++;
+    }
+    return true;
+  }
+
+  private static boolean isIgnored( TreeWalk walker ) throws IOException {
+    WorkingTreeIterator workingTree = walker.getTree( WORKDIR, WorkingTreeIterator.class );
+    return workingTree != null && workingTree.isEntryIgnored();
+  }
+
+  @Override
+  public boolean shouldBeRecursive() {
+    return false;
+  }
+
+  @Override
+  public TreeFilter clone() {
+    return new LargeRepositoryFilter( skippedDirectories, maxUntrackedFiles );
+  }
+
+  /**
+   * @return untracked directories with a trailing slash, which have not been walked into
+   */
+  public List<String> getUntrackedDirectories() {
+    return untrackedDirectories;
+  }
+
+  /**
+   * @param skippedDirectories see {@link GitRepository#getSkippedDirectories()}
+   * @param path a directory path relative to the working tree
+   * @return
+   */
+  public static boolean isSkipped( List<String> skippedDirectories, String path ) {
+    String name = path.substring( path.lastIndexOf( '/' ) + 1 );
+    return skippedDirectories.stream()
+      .anyMatch( dir -> dir.contains( "/" ) ? dir.equals( path ) : dir.equals( name ) );
+  }
+}
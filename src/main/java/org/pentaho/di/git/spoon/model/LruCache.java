@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * A bounded map that evicts the least recently used entries and counts hits and misses.
+ * Keys must identify immutable contents (e.g., a blob id) so that entries never have to be invalidated.
+ */
+public class LruCache<K, V> {
+
+  private final long capacity;
+  private final ToLongFunction<V> weigher;
+  private final Map<K, V> map = new LinkedHashMap<K, V>( 16, 0.75f, true );
+  private long weight = 0;
+  private long hits = 0;
+  private long misses = 0;
+
+  /**
+   * @param capacity the maximum number of entries
+   */
+  public LruCache( int capacity ) {
+    this( capacity, value -> 1 );
+  }
+
+  /**
+   * @param capacity the maximum total weight of entries
+   * @param weigher e.g., the approximate size in bytes of a value
+   */
+  public LruCache( long capacity, ToLongFunction<V> weigher ) {
+    this.capacity = capacity;
+    this.weigher = weigher;
+  }
+
+  /**
+   * @param key
+   * @return the cached value or null
+   */
+  public synchronized V get( K key ) {
+    V value = map.get( key );
+    if ( value == null ) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return value;
+  }
+
+  /**
+   * A value heavier than the capacity is not cached at all
+   * @param key
+   * @param value
+   */
+  public synchronized void put( K key, V value ) {
+    long valueWeight = weigher.applyAsLong( value );
+    if ( valueWeight > capacity ) {
+      return;
+    }
+    V old = map.put( key, value );
+    if ( old != null ) {
+      weight -= weigher.applyAsLong( old );
+    }
+    weight += valueWeight;
+    Iterator<V> eldest = map.values().iterator();
+    while ( weight > capacity ) {
+      weight -= weigher.applyAsLong( eldest.next() );
+      eldest.remove();
+    }
+  }
+
+  public synchronized void clear() {
+    map.clear();
+    weight = 0;
+  }
+
+  public synchronized int size() {
+    return map.size();
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+}
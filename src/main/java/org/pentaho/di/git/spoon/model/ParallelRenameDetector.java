@@ -0,0 +1,292 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.diff.DiffEntry.Side;
+import org.eclipse.jgit.diff.SimilarityIndex;
+import org.eclipse.jgit.diff.SimilarityIndex.TableFullException;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Pair deleted and added files into renames.
+ * Files with the same content are paired first, which only compares object ids.
+ * The remaining files are compared by content similarity, whose cost grows with deletes x adds,
+ * so it is skipped when either side has more files than the rename limit,
+ * and otherwise the rows of deleted files are scored in parallel.
+ * Unlike JGit's RenameDetector, copies and broken modifications are not detected.
+ */
+public class ParallelRenameDetector {
+
+  public static final int DEFAULT_RENAME_LIMIT = 400;
+  public static final int DEFAULT_RENAME_SCORE = 60;
+
+  private final Repository repository;
+  private int renameLimit = DEFAULT_RENAME_LIMIT;
+  private int renameScore = DEFAULT_RENAME_SCORE;
+  private boolean overRenameLimit;
+
+  public ParallelRenameDetector( Repository repository ) {
+    this.repository = repository;
+  }
+
+  /**
+   * @param renameLimit max number of deleted or added files to compare by content, 0 to compare only by id
+   */
+  public void setRenameLimit( int renameLimit ) {
+    this.renameLimit = renameLimit;
+  }
+
+  /**
+   * @param renameScore min similarity in percent to be a rename
+   */
+  public void setRenameScore( int renameScore ) {
+    if ( renameScore < 0 || renameScore > 100 ) {
+      throw new IllegalArgumentException( "renameScore must be between 0 and 100" );
+    }
+    this.renameScore = renameScore;
+  }
+
+  /**
+   * @return whether the last {@link #compute(List)} skipped the similarity pass
+   */
+  public boolean isOverRenameLimit() {
+    return overRenameLimit;
+  }
+
+  /**
+   * @param entries
+   * @return the entries sorted by path, where paired deletes and adds are replaced by renames
+   * @throws IOException
+   */
+  public List<DiffEntry> compute( List<DiffEntry> entries ) throws IOException {
+    overRenameLimit = false;
+    List<DiffEntry> result = new ArrayList<DiffEntry>();
+    List<DiffEntry> deletes = new ArrayList<DiffEntry>();
+    List<DiffEntry> adds = new ArrayList<DiffEntry>();
+    for ( DiffEntry entry : entries ) {
+      if ( entry.getChangeType() == ChangeType.DELETE ) {
+        deletes.add( entry );
+      } else if ( entry.getChangeType() == ChangeType.ADD ) {
+        adds.add( entry );
+      } else {
+        result.add( entry );
+      }
+    }
+
+    findExactRenames( deletes, adds, result );
+    if ( !deletes.isEmpty() && !adds.isEmpty() ) {
+      if ( Math.max( deletes.size(), adds.size() ) > renameLimit ) {
+        overRenameLimit = true;
+      } else {
+        findSimilarRenames( deletes, adds, result );
+      }
+    }
+    result.addAll( deletes );
+    result.addAll( adds );
+    result.sort( Comparator.comparing( ParallelRenameDetector::getPath ) );
+    return result;
+  }
+
+  private void findExactRenames( List<DiffEntry> deletes, List<DiffEntry> adds, List<DiffEntry> result ) {
+    Map<AbbreviatedObjectId, List<DiffEntry>> deletesById = new HashMap<AbbreviatedObjectId, List<DiffEntry>>();
+    deletes.forEach( delete -> deletesById.computeIfAbsent( delete.getOldId(), id -> new ArrayList<DiffEntry>() ).add( delete ) );
+    Set<DiffEntry> paired = Collections.newSetFromMap( new IdentityHashMap<DiffEntry, Boolean>() );
+    for ( DiffEntry add : adds ) {
+      List<DiffEntry> candidates = deletesById.get( add.getNewId() );
+      if ( candidates == null ) {
+        continue;
+      }
+      DiffEntry match = null;
+      for ( DiffEntry delete : candidates ) {
+        if ( isSameType( delete.getOldMode(), add.getNewMode() )
+          && ( match == null || isSameName( delete, add ) && !isSameName( match, add ) ) ) {
+          match = delete;
+        }
+      }
+      if ( match != null ) {
+        candidates.remove( match );
+        paired.add( match );
+        paired.add( add );
+        result.add( new Rename( match, add, 100 ) );
+      }
+    }
+    deletes.removeIf( paired::contains );
+    adds.removeIf( paired::contains );
+  }
+
+  private void findSimilarRenames( List<DiffEntry> deletes, List<DiffEntry> adds, List<DiffEntry> result ) throws IOException {
+    Indexed[] srcs = index( deletes, Side.OLD );
+    Indexed[] dsts = index( adds, Side.NEW );
+    List<Candidate> candidates = IntStream.range( 0, srcs.length ).parallel()
+      .mapToObj( i -> score( i, srcs, dsts, deletes, adds ) )
+      .flatMap( List::stream )
+      .collect( Collectors.toList() );
+    // Best pairs first, and among equals the one keeping the file name
+    candidates.sort( Comparator.comparingInt( ( Candidate c ) -> -c.score )
+      .thenComparing( c -> !isSameName( deletes.get( c.src ), adds.get( c.dst ) ) )
+      .thenComparingInt( c -> c.src )
+      .thenComparingInt( c -> c.dst ) );
+
+    boolean[] srcUsed = new boolean[srcs.length];
+    boolean[] dstUsed = new boolean[dsts.length];
+    for ( Candidate c : candidates ) {
+      if ( !srcUsed[c.src] && !dstUsed[c.dst] ) {
+        srcUsed[c.src] = true;
+        dstUsed[c.dst] = true;
+        result.add( new Rename( deletes.get( c.src ), adds.get( c.dst ), c.score ) );
+      }
+    }
+    removeUsed( deletes, srcUsed );
+    removeUsed( adds, dstUsed );
+  }
+
+  private List<Candidate> score( int i, Indexed[] srcs, Indexed[] dsts, List<DiffEntry> deletes, List<DiffEntry> adds ) {
+    List<Candidate> candidates = new ArrayList<Candidate>();
+    Indexed src = srcs[i];
+    if ( src == null ) {
+      return candidates;
+    }
+    for ( int j = 0; j < dsts.length; j++ ) {
+      Indexed dst = dsts[j];
+      if ( dst == null || !isSameType( deletes.get( i ).getOldMode(), adds.get( j ).getNewMode() ) ) {
+        continue;
+      }
+      // The score cannot exceed the ratio of the sizes
+      long min = Math.min( src.size, dst.size );
+      long max = Math.max( src.size, dst.size );
+      if ( min * 100 < renameScore * max ) {
+        continue;
+      }
+      int score = src.index.score( dst.index, 100 );
+      if ( score >= renameScore ) {
+        candidates.add( new Candidate( i, j, score ) );
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Build the similarity index of each file in parallel
+   * @return indexes, where null is for a file that cannot be compared
+   */
+  private Indexed[] index( List<DiffEntry> entries, Side side ) throws IOException {
+    try {
+      return entries.parallelStream()
+        .map( entry -> index( entry.getId( side ), entry.getMode( side ) ) )
+        .toArray( Indexed[]::new );
+    } catch ( UncheckedIOException e ) {
+      throw e.getCause();
+    }
+  }
+
+  private Indexed index( AbbreviatedObjectId id, FileMode mode ) {
+    if ( mode.getObjectType() != Constants.OBJ_BLOB || !id.isComplete() ) {
+      return null;
+    }
+    // ObjectReader is not thread-safe
+    try ( ObjectReader reader = repository.newObjectReader() ) {
+      long size = reader.getObjectSize( id.toObjectId(), Constants.OBJ_BLOB );
+      return new Indexed( SimilarityIndex.create( reader.open( id.toObjectId(), Constants.OBJ_BLOB ) ), size );
+    } catch ( TableFullException e ) {
+      return null;
+    } catch ( IOException e ) {
+      throw new UncheckedIOException( e );
+    }
+  }
+
+  private static void removeUsed( List<DiffEntry> entries, boolean[] used ) {
+    List<DiffEntry> remaining = new ArrayList<DiffEntry>();
+    for ( int i = 0; i < entries.size(); i++ ) {
+      if ( !used[i] ) {
+        remaining.add( entries.get( i ) );
+      }
+    }
+    entries.clear();
+    entries.addAll( remaining );
+  }
+
+  private static boolean isSameType( FileMode a, FileMode b ) {
+    return ( a.getBits() & FileMode.TYPE_MASK ) == ( b.getBits() & FileMode.TYPE_MASK );
+  }
+
+  private static boolean isSameName( DiffEntry delete, DiffEntry add ) {
+    String oldPath = delete.getOldPath();
+    String newPath = add.getNewPath();
+    return oldPath.substring( oldPath.lastIndexOf( '/' ) + 1 ).equals( newPath.substring( newPath.lastIndexOf( '/' ) + 1 ) );
+  }
+
+  private static String getPath( DiffEntry entry ) {
+    return entry.getChangeType() == ChangeType.DELETE ? entry.getOldPath() : entry.getNewPath();
+  }
+
+  private static class Indexed {
+    private final SimilarityIndex index;
+    private final long size;
+
+    Indexed( SimilarityIndex index, long size ) {
+      this.index = index;
+      this.size = size;
+    }
+  }
+
+  private static class Candidate {
+    private final int src;
+    private final int dst;
+    private final int score;
+
+    Candidate( int src, int dst, int score ) {
+      this.src = src;
+      this.dst = dst;
+      this.score = score;
+    }
+  }
+
+  /**
+   * DiffEntry's own factory for renames is package-private
+   */
+  private static class Rename extends DiffEntry {
+    Rename( DiffEntry delete, DiffEntry add, int score ) {
+      changeType = ChangeType.RENAME;
+      oldPath = delete.getOldPath();
+      oldMode = delete.getOldMode();
+      oldId = delete.getOldId();
+      newPath = add.getNewPath();
+      newMode = add.getNewMode();
+      newId = add.getNewId();
+      this.score = score;
+    }
+  }
+}
@@ -25,10 +25,13 @@ import java.net.MalformedURLException;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.FilenameUtils;
@@ -60,24 +63,41 @@ import org.tigris.subversion.svnclientadapter.SVNUrl;
 import org.tigris.subversion.svnclientadapter.javahl.AbstractJhlClientAdapter;
 import org.tigris.subversion.svnclientadapter.javahl.JhlClientAdapterFactory;
 
+import com.google.common.annotations.VisibleForTesting;
+
 public class SVN extends VCS implements IVCS {
 
-  static {
-    try {
-      JhlClientAdapterFactory.setup();
-    } catch ( SVNClientException e ) {
-      e.printStackTrace();
-    }
-  }
+  private static boolean javahlSetup = false;
 
   private ISVNClientAdapter svnClient;
   private File root;
   private boolean repositoryChecked = false;
+  private File logCacheDirectory = SvnLogCache.getDefaultDirectory();
+  private SvnLogCache logCache;
+  private String logCacheUrl;
+  private StatusSnapshot status;
 
   public SVN() {
+    setupJavaHL();
     svnClient = SVNClientAdapterFactory.createSVNClient( JhlClientAdapterFactory.JAVAHL_CLIENT );
   }
 
+  /**
+   * Load the native JavaHL library when an SVN repository is opened (or cloned) for the first time
+   * rather than when this class is loaded
+   */
+  private static synchronized void setupJavaHL() {
+    if ( javahlSetup ) {
+      return;
+    }
+    try {
+      JhlClientAdapterFactory.setup();
+      javahlSetup = true;
+    } catch ( SVNClientException e ) {
+      e.printStackTrace();
+    }
+  }
+
   @Override
   public String getType() {
     return IVCS.SVN;
@@ -85,15 +105,28 @@ public class SVN extends VCS implements IVCS {
 
   @Override
   public void add( String name ) {
+    add( Collections.singletonList( name ) );
+  }
+
+  /**
+   * JavaHL has no multi-path add, so files are added one by one
+   * but the status is discarded and an error is shown only once
+   * @see org.pentaho.di.git.spoon.model.VCS#add(java.util.Collection)
+   */
+  @Override
+  public void add( Collection<String> names ) {
+    discardStatus();
     try {
-      if ( name.matches( ".*\\.mine$|.*\\.r\\d+$" ) ) { // Resolve a conflict
-        File conflicted = new File( directory + File.separator + FilenameUtils.separatorsToSystem( FilenameUtils.removeExtension( name ) ) );
-        FileUtils.rename( new File( directory, name ),
-            conflicted,
-            StandardCopyOption.REPLACE_EXISTING );
-        svnClient.resolved( conflicted );
-      } else {
-        svnClient.addFile( new File( directory, name ) );
+      for ( String name : names ) {
+        if ( name.matches( ".*\\.mine$|.*\\.r\\d+$" ) ) { // Resolve a conflict
+          File conflicted = new File( directory + File.separator + FilenameUtils.separatorsToSystem( FilenameUtils.removeExtension( name ) ) );
+          FileUtils.rename( new File( directory, name ),
+              conflicted,
+              StandardCopyOption.REPLACE_EXISTING );
+          svnClient.resolved( conflicted );
+        } else {
+          svnClient.addFile( new File( directory, name ) );
+        }
       }
     } catch ( Exception e ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
@@ -102,8 +135,17 @@ public class SVN extends VCS implements IVCS {
 
   @Override
   public void rm( String name ) {
+    rm( Collections.singletonList( name ) );
+  }
+
+  @Override
+  public void rm( Collection<String> names ) {
+    discardStatus();
+    if ( names.isEmpty() ) {
+      return;
+    }
     try {
-      svnClient.remove( new File[]{ new File( directory, name ) }, false );
+      svnClient.remove( names.stream().map( name -> new File( directory, name ) ).toArray( File[]::new ), false );
     } catch ( SVNClientException e ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
     }
@@ -139,10 +181,11 @@ public class SVN extends VCS implements IVCS {
 
   @Override
   public boolean createBranch( String name ) {
-    if ( !isClean() ) {
+    if ( !isCleanNow() ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Dirty working-tree" );
       return false;
     }
+    discardStatus();
     try {
       svnClient.copy( new SVNUrl( getRemoteRoot() + File.separator + getBranch() ),
           new SVNUrl( getRemoteRoot() + File.separator + name ),
@@ -184,10 +227,11 @@ public class SVN extends VCS implements IVCS {
 
   @Override
   public boolean createTag( String name ) {
-    if ( !isClean() ) {
+    if ( !isCleanNow() ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Dirty working-tree" );
       return false;
     }
+    discardStatus();
     try {
       svnClient.copy( new SVNUrl( getRemoteRoot() + File.separator + getBranch() ),
           new SVNUrl( getRemoteRoot() + File.separator + name ),
@@ -229,35 +273,68 @@ public class SVN extends VCS implements IVCS {
 
   @Override
   public void revertPath( String path ) {
+    revertPaths( Collections.singletonList( path ) );
+  }
+
+  @Override
+  public void revertPaths( Collection<String> paths ) {
+    discardStatus();
+    if ( paths.isEmpty() ) {
+      return;
+    }
+    AbstractJhlClientAdapter client = (AbstractJhlClientAdapter) svnClient;
     try {
-      svnClient.revert( new File( directory + File.separator + FilenameUtils.separatorsToSystem( path ) ), false );
-    } catch ( SVNClientException e ) {
+      client.getSVNClient().revert( paths.stream().map( this::getFullPath ).collect( Collectors.toSet() ),
+          Depth.empty, null );
+    } catch ( ClientException e ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
     }
   }
 
   @Override
   public void resetPath( String path ) {
-    String fullpath = directory + File.separator + FilenameUtils.separatorsToSystem( path );
-    try {
-      ISVNStatus status = svnClient.getSingleStatus( new File( fullpath ) );
-      if ( !status.getTextStatus().toString().equals( "added" ) ) {
-        showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Versioned files are always staged for the next commit" );
+    resetPaths( Collections.singletonList( path ) );
+  }
+
+  /**
+   * Unschedule added files in a single remove (keeping local files).
+   * Other versioned files are always staged, hence left as they are.
+   * @see org.pentaho.di.git.spoon.model.VCS#resetPaths(java.util.Collection)
+   */
+  @Override
+  public void resetPaths( Collection<String> paths ) {
+    discardStatus();
+    Set<String> added = new HashSet<String>();
+    for ( String path : paths ) {
+      String fullpath = getFullPath( path );
+      try {
+        ISVNStatus status = svnClient.getSingleStatus( new File( fullpath ) );
+        if ( status.getTextStatus().toString().equals( "added" ) ) {
+          added.add( fullpath );
+        }
+      } catch ( SVNClientException e ) {
+        showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
         return;
       }
-    } catch ( SVNClientException e ) {
-      showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
+    }
+    if ( added.size() < paths.size() ) {
+      showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Versioned files are always staged for the next commit" );
+    }
+    if ( added.isEmpty() ) {
+      return;
     }
     AbstractJhlClientAdapter client = (AbstractJhlClientAdapter) svnClient;
     try {
-      client.getSVNClient().remove(
-          new HashSet<String>( Arrays.asList( fullpath ) ),
-          false, true, null, null, null );
+      client.getSVNClient().remove( added, false, true, null, null, null );
     } catch ( ClientException e ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
     }
   }
 
+  private String getFullPath( String path ) {
+    return directory + File.separator + FilenameUtils.separatorsToSystem( path );
+  }
+
   @Override
   public String diff( String oldCommitId, String newCommitId, String file ) {
     AbstractJhlClientAdapter client = (AbstractJhlClientAdapter) svnClient;
@@ -286,11 +363,7 @@ public class SVN extends VCS implements IVCS {
     if ( commitId.equals( IVCS.WORKINGTREE ) ) {
       return "";
     } else {
-      UIRepositoryObjectRevisions revisions = getRevisions();
-      UIRepositoryObjectRevision revision = revisions.stream()
-          .filter( rev -> rev.getName().equals( commitId ) )
-          .findFirst().get();
-      return revision.getLogin();
+      return getLogEntry( commitId ).getLogin();
     }
   }
 
@@ -299,14 +372,25 @@ public class SVN extends VCS implements IVCS {
     if ( commitId.equals( IVCS.WORKINGTREE ) ) {
       return "";
     } else {
-      UIRepositoryObjectRevisions revisions = getRevisions();
-      UIRepositoryObjectRevision revision = revisions.stream()
-          .filter( rev -> rev.getName().equals( commitId ) )
-          .findFirst().get();
-      return revision.getComment();
+      return getLogEntry( commitId ).getComment();
     }
   }
 
+  /**
+   * Look up a revision in the log cache, which is updated only when the revision is not cached yet
+   */
+  private PurObjectRevision getLogEntry( String commitId ) {
+    long number = Long.parseLong( commitId );
+    if ( logCache == null || logCache.get( number ) == null ) {
+      getLog( true );
+    }
+    PurObjectRevision revision = logCache == null ? null : logCache.get( number );
+    if ( revision == null ) {
+      throw new NoSuchElementException( commitId );
+    }
+    return revision;
+  }
+
   @Override
   public String getCommitId( String revstr ) {
     return revstr;
@@ -409,6 +493,7 @@ public class SVN extends VCS implements IVCS {
 
   @Override
   public boolean commit( String authorName, String message ) {
+    discardStatus();
     try {
       svnClient.commit( new File[]{ root }, message, true );
       return true;
@@ -428,76 +513,163 @@ public class SVN extends VCS implements IVCS {
   @Override
   public UIRepositoryObjectRevisions getRevisions() {
     UIRepositoryObjectRevisions revisions = new UIRepositoryObjectRevisions();
-    ISVNLogMessage[] messages = null;
-    try {
-      SVNRevision.Number revision = svnClient.getInfoFromWorkingCopy( root ).getRevision();
-      if ( revision != null ) {
-      messages = svnClient.getLogMessages( root, new SVNRevision.Number( 0 ),
-                revision, false, false, 0);
-      }
-    } catch ( SVNClientException e ) {
-      if ( e.getMessage().contains( "Authorization" ) && promptUsernamePassword() ) {
-        return getRevisions();
-      } else {
-        showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
-      }
-    }
-    if ( messages != null ) {
-      Arrays.stream( messages )
-        .filter( logMessage -> logMessage.getRevision().getNumber() != 0 )
-        .forEach( logMessage -> {
-          PurObjectRevision rev = new PurObjectRevision(
-            logMessage.getRevision().toString(),
-            logMessage.getAuthor(),
-            logMessage.getDate(),
-            logMessage.getMessage() );
-          revisions.add( new UIRepositoryObjectRevision( (ObjectRevision) rev ) );
-        } );
-    }
+    getLog( true ).forEach( rev -> revisions.add( new UIRepositoryObjectRevision( (ObjectRevision) rev ) ) );
     if ( !isClean() ) {
       PurObjectRevision rev = new PurObjectRevision(
           WORKINGTREE,
           "*",
           new Date(),
           " // " + VCS.WORKINGTREE );
-      revisions.add( new UIRepositoryObjectRevision( (ObjectRevision) rev ) );
+      revisions.add( 0, new UIRepositoryObjectRevision( (ObjectRevision) rev ) );
     }
-    Collections.reverse( revisions );
     return revisions;
   }
 
+  /**
+   * Get a page of revisions from the log cache, which is brought up to date only for the first page.
+   * @see org.pentaho.di.git.spoon.model.IVCS#getRevisions(int, int)
+   */
   @Override
-  public List<UIFile> getUnstagedFiles() {
-    List<UIFile> files = new ArrayList<UIFile>();
+  public UIRepositoryObjectRevisions getRevisions( int skip, int limit ) {
+    UIRepositoryObjectRevisions revisions = new UIRepositoryObjectRevisions();
+    getLog( skip == 0 ).stream()
+      .skip( skip ).limit( limit )
+      .forEach( rev -> revisions.add( new UIRepositoryObjectRevision( (ObjectRevision) rev ) ) );
+    if ( skip == 0 && !isClean() ) {
+      PurObjectRevision rev = new PurObjectRevision(
+          WORKINGTREE,
+          "*",
+          new Date(),
+          " // " + VCS.WORKINGTREE );
+      revisions.add( 0, new UIRepositoryObjectRevision( (ObjectRevision) rev ) );
+    }
+    return revisions;
+  }
+
+  /**
+   * Get the log up to the working copy revision from the newest to the oldest
+   * @param update whether to fetch revisions newer than the cached ones
+   * @return
+   */
+  private List<PurObjectRevision> getLog( boolean update ) {
     try {
-      svnClient.getStatus( root, true, false, false,
-        false, false, ( String path, ISVNStatus status ) -> {
-          if ( status.getTextStatus().equals( SVNStatusKind.UNVERSIONED )
-              || status.getTextStatus().equals( SVNStatusKind.MISSING ) ) {
-            files.add( new UIFile( path.replaceFirst( directory.replace( "\\", "/" ) + "/", "" ), convertTypeToGit( status.getTextStatus().toString() ), false ) );
-          }
-        } );
+      ISVNInfo info = svnClient.getInfoFromWorkingCopy( root );
+      SVNRevision.Number revision = info.getRevision();
+      if ( revision == null ) {
+        return new ArrayList<PurObjectRevision>();
+      }
+      SvnLogCache cache = getLogCache( info );
+      if ( update ) {
+        updateLog( cache, revision.getNumber() );
+      }
+      return cache.getRevisions( revision.getNumber() ).stream()
+        .filter( rev -> !rev.getName().equals( "0" ) )
+        .collect( Collectors.toList() );
     } catch ( SVNClientException e ) {
-      showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
+      if ( e.getMessage().contains( "Authorization" ) && promptUsernamePassword() ) {
+        return getLog( update );
+      } else {
+        showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
+      }
     }
-    return files;
+    return new ArrayList<PurObjectRevision>();
+  }
+
+  /**
+   * Fetch only the revisions newer than the last cached one
+   */
+  private void updateLog( SvnLogCache cache, long upTo ) throws SVNClientException {
+    long last = cache.getLastRevision();
+    if ( upTo <= last ) {
+      return;
+    }
+    ISVNLogMessage[] messages = svnClient.getLogMessages( root, new SVNRevision.Number( last == 0 ? 0 : last + 1 ),
+        new SVNRevision.Number( upTo ), false, false, 0 );
+    cache.add( upTo, Arrays.stream( messages )
+      .map( logMessage -> new PurObjectRevision(
+        logMessage.getRevision().toString(),
+        logMessage.getAuthor(),
+        logMessage.getDate(),
+        logMessage.getMessage() ) )
+      .collect( Collectors.toList() ) );
+  }
+
+  @VisibleForTesting
+  void setLogCacheDirectory( File logCacheDirectory ) {
+    this.logCacheDirectory = logCacheDirectory;
+    logCache = null;
+  }
+
+  private SvnLogCache getLogCache( ISVNInfo info ) {
+    String url = info.getUrlString();
+    if ( logCache == null || !url.equals( logCacheUrl ) ) { // e.g., switched to another branch
+      logCache = new SvnLogCache( SvnLogCache.getFile( logCacheDirectory, url ), info.getUuid() );
+      logCacheUrl = url;
+    }
+    return logCache;
+  }
+
+  @Override
+  public List<UIFile> getUnstagedFiles() {
+    return getStatus().getUnstagedFiles();
   }
 
   @Override
   public List<UIFile> getStagedFiles() {
-    List<UIFile> files = new ArrayList<UIFile>();
+    return getStatus().getStagedFiles();
+  }
+
+  /**
+   * Get the status of the working copy, which is walked once and reused
+   * until a mutation or {@link #invalidateStatus()}.
+   * @return
+   */
+  @VisibleForTesting
+  StatusSnapshot getStatus() {
+    if ( status != null ) {
+      return status;
+    }
+    List<UIFile> staged = new ArrayList<UIFile>();
+    List<UIFile> unstaged = new ArrayList<UIFile>();
+    Set<String> conflicting = new HashSet<String>();
+    String prefix = directory.replace( "\\", "/" ) + "/";
     try {
       svnClient.getStatus( root, true, false, false,
-        false, false, ( String path, ISVNStatus status ) -> {
-          if ( !status.getTextStatus().equals( SVNStatusKind.UNVERSIONED )
-              && !status.getTextStatus().equals( SVNStatusKind.MISSING ) ) {
-            files.add( new UIFile( path.replaceFirst( directory.replace( "\\", "/" ) + "/", "" ), convertTypeToGit( status.getTextStatus().toString() ), true ) );
+        false, false, ( String path, ISVNStatus svnStatus ) -> {
+          String name = path.replaceFirst( prefix, "" );
+          SVNStatusKind kind = svnStatus.getTextStatus();
+          if ( kind.equals( SVNStatusKind.UNVERSIONED ) || kind.equals( SVNStatusKind.MISSING ) ) {
+            unstaged.add( new UIFile( name, convertTypeToGit( kind.toString() ), false ) );
+          } else {
+            staged.add( new UIFile( name, convertTypeToGit( kind.toString() ), true ) );
+            if ( kind.equals( SVNStatusKind.CONFLICTED ) ) {
+              conflicting.add( name );
+            }
           }
         } );
     } catch ( SVNClientException e ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
+      return new StatusSnapshot( staged, unstaged, conflicting );
     }
-    return files;
+    status = new StatusSnapshot( staged, unstaged, conflicting );
+    return status;
+  }
+
+  @Override
+  public void invalidateStatus() {
+    discardStatus();
+  }
+
+  private void discardStatus() {
+    status = null;
+  }
+
+  /**
+   * Always re-scan as this guards operations that would overwrite changes
+   */
+  private boolean isCleanNow() {
+    discardStatus();
+    return isClean();
   }
 
   @Override
@@ -520,12 +692,12 @@ public class SVN extends VCS implements IVCS {
 
   @Override
   public boolean hasStagedFiles() {
-    return !getStagedFiles().isEmpty();
+    return getStatus().hasStagedFiles();
   }
 
   @Override
   public boolean isClean() {
-    return getStagedFiles().isEmpty() & getUnstagedFiles().isEmpty();
+    return getStatus().isClean();
   }
 
   @Override
@@ -546,8 +718,22 @@ public class SVN extends VCS implements IVCS {
     return null;
   }
 
+  @Override
+  public String getContentId( String file, String commitId ) {
+    // A path at a numbered revision never changes, but HEAD and the working copy do
+    if ( !commitId.matches( "\\d+" ) ) {
+      return null;
+    }
+    try {
+      return svnClient.getInfoFromWorkingCopy( root ).getUrl().appendPath( file ).toString() + "@" + commitId;
+    } catch ( SVNClientException e ) {
+      return null;
+    }
+  }
+
   @Override
   public void openRepo( String baseDirectory ) throws Exception {
+    discardStatus();
     repositoryChecked = false;
     directory = baseDirectory;
     root = new File( directory );
@@ -555,6 +741,7 @@ public class SVN extends VCS implements IVCS {
 
   @Override
   public boolean pull() {
+    discardStatus();
     try {
       SVNRevision.Number lastRevision = svnClient.getInfoFromWorkingCopy( root ).getRevision();
       long newLastRevision = svnClient.update( root, SVNRevision.HEAD, true );
@@ -572,6 +759,7 @@ public class SVN extends VCS implements IVCS {
 
   @Override
   public boolean merge() {
+    discardStatus();
     String name = null;
     List<String> names = getBranches();
     EnterSelectionDialog esd = new EnterSelectionDialog( shell, names.toArray( new String[names.size()] ),
@@ -592,10 +780,11 @@ public class SVN extends VCS implements IVCS {
 
   @Override
   public boolean rollback( String name ) {
-    if ( !isClean() ) {
+    if ( !isCleanNow() ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Dirty working-tree" );
       return false;
     }
+    discardStatus();
     try {
       svnClient.merge( new SVNUrl( getRemote() ),
           null,
@@ -614,15 +803,17 @@ public class SVN extends VCS implements IVCS {
 
   @Override
   public void closeRepo() {
+    discardStatus();
     root = null;
   }
 
   @Override
   public void checkout( String name ) {
-    if ( !isClean() ) {
+    if ( !isCleanNow() ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Dirty working-tree" );
       return;
     }
+    discardStatus();
     try {
       svnClient.update( root, new SVNRevision.Number( Long.parseLong( name ) ), true );
     } catch ( Exception e ) {
@@ -632,10 +823,11 @@ public class SVN extends VCS implements IVCS {
 
   @Override
   public void checkoutBranch( String name ) {
-    if ( !isClean() ) {
+    if ( !isCleanNow() ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Dirty working-tree" );
       return;
     }
+    discardStatus();
     try {
       svnClient.switchToUrl( root, new SVNUrl( getRemoteRoot() + "/" + name ), SVNRevision.HEAD, true );
     } catch ( Exception e ) {
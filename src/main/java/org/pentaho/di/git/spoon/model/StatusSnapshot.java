@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+
+/**
+ * The result of a single scan of the working tree and the index.
+ * Staged, unstaged, clean and conflict views are all derived from it
+ * so that one refresh of the UI needs only one scan.
+ */
+public class StatusSnapshot {
+
+  private final List<UIFile> stagedFiles;
+  private final List<UIFile> unstagedFiles;
+  private final Set<String> conflicting;
+
+  public StatusSnapshot( List<UIFile> stagedFiles, List<UIFile> unstagedFiles, Set<String> conflicting ) {
+    this.stagedFiles = stagedFiles;
+    this.unstagedFiles = unstagedFiles;
+    this.conflicting = conflicting;
+  }
+
+  public static StatusSnapshot of( Status status ) {
+    List<UIFile> staged = new ArrayList<UIFile>();
+    status.getAdded().forEach( name -> {
+      staged.add( new UIFile( name, ChangeType.ADD, true ) );
+    } );
+    status.getChanged().forEach( name -> {
+      staged.add( new UIFile( name, ChangeType.MODIFY, true ) );
+    } );
+    status.getRemoved().forEach( name -> {
+      staged.add( new UIFile( name, ChangeType.DELETE, true ) );
+    } );
+
+    List<UIFile> unstaged = new ArrayList<UIFile>();
+    status.getUntracked().forEach( name -> {
+      unstaged.add( new UIFile( name, ChangeType.ADD, false ) );
+    } );
+    status.getModified().forEach( name -> {
+      unstaged.add( new UIFile( name, ChangeType.MODIFY, false ) );
+    } );
+    status.getConflicting().forEach( name -> {
+      unstaged.add( new UIFile( name, ChangeType.MODIFY, false ) );
+    } );
+    status.getMissing().forEach( name -> {
+      unstaged.add( new UIFile( name, ChangeType.DELETE, false ) );
+    } );
+    return new StatusSnapshot( staged, unstaged, new HashSet<String>( status.getConflicting() ) );
+  }
+
+  /**
+   * Replace the entries under the given paths with those of a snapshot scanned only for these paths
+   * @param paths files or directories relative to the working tree
+   * @param partial a snapshot filtered by the same paths
+   * @return a new snapshot
+   */
+  public StatusSnapshot merge( Collection<String> paths, StatusSnapshot partial ) {
+    Predicate<String> covered = coveredBy( paths );
+    List<UIFile> staged = stagedFiles.stream()
+      .filter( file -> !covered.test( file.getName() ) )
+      .collect( Collectors.toList() );
+    staged.addAll( partial.stagedFiles );
+    List<UIFile> unstaged = unstagedFiles.stream()
+      .filter( file -> !covered.test( file.getName() ) )
+      .collect( Collectors.toList() );
+    unstaged.addAll( partial.unstagedFiles );
+    Set<String> conflicts = conflicting.stream()
+      .filter( name -> !covered.test( name ) )
+      .collect( Collectors.toSet() );
+    conflicts.addAll( partial.conflicting );
+    return new StatusSnapshot( staged, unstaged, conflicts );
+  }
+
+  public int countUntracked() {
+    return countUntrackedExcept( Collections.<String>emptyList() );
+  }
+
+  /**
+   * @param paths files or directories relative to the working tree
+   * @return the number of untracked entries not under the given paths, which a merge keeps
+   */
+  public int countUntrackedExcept( Collection<String> paths ) {
+    Predicate<String> covered = coveredBy( paths );
+    return (int) unstagedFiles.stream()
+      .filter( file -> file.getChangeType() == ChangeType.ADD && !covered.test( file.getName() ) )
+      .count();
+  }
+
+  private static Predicate<String> coveredBy( Collection<String> paths ) {
+    // A collapsed untracked directory (e.g., "dir/") covers the paths under it
+    return name -> paths.stream()
+      .anyMatch( path -> name.equals( path ) || name.startsWith( path + "/" )
+        || ( name.endsWith( "/" ) && path.startsWith( name ) ) );
+  }
+
+  /**
+   * Add untracked directories which have not been walked into
+   * @param directories paths with a trailing slash
+   * @return a new snapshot
+   */
+  public StatusSnapshot withUntrackedDirectories( Collection<String> directories ) {
+    List<UIFile> unstaged = new ArrayList<UIFile>( unstagedFiles );
+    directories.forEach( directory -> unstaged.add( new UIFile( directory, ChangeType.ADD, false ) ) );
+    return new StatusSnapshot( stagedFiles, unstaged, conflicting );
+  }
+
+  public List<UIFile> getStagedFiles() {
+    return new ArrayList<UIFile>( stagedFiles );
+  }
+
+  public List<UIFile> getUnstagedFiles() {
+    return new ArrayList<UIFile>( unstagedFiles );
+  }
+
+  public Set<String> getConflicting() {
+    return Collections.unmodifiableSet( conflicting );
+  }
+
+  public boolean hasStagedFiles() {
+    return !stagedFiles.isEmpty();
+  }
+
+  /**
+   * Untracked files do not count as uncommitted changes
+   * @return
+   */
+  public boolean hasUncommittedChanges() {
+    // Untracked files are the only unstaged additions
+    return !stagedFiles.isEmpty()
+        || unstagedFiles.stream().anyMatch( file -> file.getChangeType() != ChangeType.ADD );
+  }
+
+  public boolean isClean() {
+    return stagedFiles.isEmpty() && unstagedFiles.isEmpty();
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.repository.pur.PurObjectRevision;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * The log of a Subversion URL kept in memory and on disk under the Kettle home,
+ * so that only revisions newer than the cached ones have to be fetched from the server
+ * and a single revision can be looked up without the network.
+ */
+public class SvnLogCache {
+
+  private static final int VERSION = 1;
+
+  private final File file;
+  private final String uuid;
+  private final NavigableMap<Long, PurObjectRevision> revisions = new TreeMap<Long, PurObjectRevision>();
+  private long lastRevision = 0;
+
+  /**
+   * @param file where the log is persisted
+   * @param uuid of the repository; the persisted log of another repository is discarded
+   */
+  public SvnLogCache( File file, String uuid ) {
+    this.file = file;
+    this.uuid = uuid == null ? "" : uuid;
+    load();
+  }
+
+  /**
+   * @return the directory under the Kettle home where logs are persisted by default
+   */
+  public static File getDefaultDirectory() {
+    return new File( Const.getKettleDirectory() + Const.FILE_SEPARATOR + "git-plugin" + Const.FILE_SEPARATOR + "svn-log" );
+  }
+
+  /**
+   * @param directory where logs are persisted, see {@link #getDefaultDirectory()}
+   * @param url the URL of a working copy
+   * @return a file under the directory which is unique to the URL
+   */
+  public static File getFile( File directory, String url ) {
+    String name = Hashing.sha1().hashString( url, StandardCharsets.UTF_8 ).toString();
+    return new File( directory, name );
+  }
+
+  /**
+   * @return the revision up to which the log has been fetched
+   */
+  public synchronized long getLastRevision() {
+    return lastRevision;
+  }
+
+  /**
+   * Add newly fetched log entries and persist them
+   * @param upTo the revision up to which the log has been fetched
+   * @param entries log entries between the previous last revision and upTo
+   */
+  public synchronized void add( long upTo, Collection<PurObjectRevision> entries ) {
+    entries.forEach( entry -> revisions.put( Long.parseLong( entry.getName() ), entry ) );
+    lastRevision = Math.max( lastRevision, upTo );
+    save();
+  }
+
+  /**
+   * @param revision
+   * @return null if not cached (e.g., the revision did not change the URL)
+   */
+  public synchronized PurObjectRevision get( long revision ) {
+    return revisions.get( revision );
+  }
+
+  /**
+   * @param upTo
+   * @return log entries up to the given revision from the newest to the oldest
+   */
+  public synchronized List<PurObjectRevision> getRevisions( long upTo ) {
+    return new ArrayList<PurObjectRevision>( revisions.headMap( upTo, true ).descendingMap().values() );
+  }
+
+  private void load() {
+    if ( !file.exists() ) {
+      return;
+    }
+    try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) ) ) {
+      if ( in.readInt() != VERSION || !in.readUTF().equals( uuid ) ) {
+        return;
+      }
+      long last = in.readLong();
+      int size = in.readInt();
+      for ( int i = 0; i < size; i++ ) {
+        long revision = in.readLong();
+        String author = readString( in );
+        long date = in.readLong();
+        String message = readString( in );
+        revisions.put( revision,
+            new PurObjectRevision( Long.toString( revision ), author, date < 0 ? null : new Date( date ), message ) );
+      }
+      lastRevision = last;
+    } catch ( IOException e ) {
+      // A broken cache is just refetched
+      revisions.clear();
+      lastRevision = 0;
+    }
+  }
+
+  private void save() {
+    try {
+      Files.createDirectories( file.getAbsoluteFile().getParentFile().toPath() );
+      File tmp = new File( file.getPath() + ".tmp" );
+      try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tmp ) ) ) ) {
+        out.writeInt( VERSION );
+        out.writeUTF( uuid );
+        out.writeLong( lastRevision );
+        out.writeInt( revisions.size() );
+        for ( PurObjectRevision revision : revisions.values() ) {
+          out.writeLong( Long.parseLong( revision.getName() ) );
+          writeString( out, revision.getLogin() );
+          out.writeLong( revision.getCreationDate() == null ? -1 : revision.getCreationDate().getTime() );
+          writeString( out, revision.getComment() );
+        }
+      }
+      Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+    } catch ( IOException e ) {
+      // The log is still cached in memory
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Unlike writeUTF, allow null and strings longer than 64KB (e.g., a long commit message)
+   */
+  private static void writeString( DataOutputStream out, String value ) throws IOException {
+    if ( value == null ) {
+      out.writeInt( -1 );
+    } else {
+      byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+      out.writeInt( bytes.length );
+      out.write( bytes );
+    }
+  }
+
+  private static String readString( DataInputStream in ) throws IOException {
+    int length = in.readInt();
+    if ( length < 0 ) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully( bytes );
+    return new String( bytes, StandardCharsets.UTF_8 );
+  }
+}
@@ -22,17 +22,32 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URISyntaxException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.output.WriterOutputStream;
 import org.eclipse.jface.window.Window;
+import org.eclipse.jgit.api.AddCommand;
+import org.eclipse.jgit.api.CheckoutCommand;
 import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.DiffCommand;
 import org.eclipse.jgit.api.FetchCommand;
@@ -45,15 +60,25 @@ import org.eclipse.jgit.api.PullResult;
 import org.eclipse.jgit.api.PushCommand;
 import org.eclipse.jgit.api.RemoteAddCommand;
 import org.eclipse.jgit.api.RemoteRemoveCommand;
+import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.RevertCommand;
+import org.eclipse.jgit.api.RmCommand;
 import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.JGitInternalException;
 import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
 import org.eclipse.jgit.diff.DiffEntry.ChangeType;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
-import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
 import org.eclipse.jgit.dircache.DirCacheIterator;
 import org.eclipse.jgit.errors.AmbiguousObjectException;
 import org.eclipse.jgit.errors.CorruptObjectException;
@@ -61,9 +86,13 @@ import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.NoWorkTreeException;
 import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.events.ListenerHandle;
+import org.eclipse.jgit.lib.BranchConfig;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.IndexDiff;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
@@ -76,7 +105,6 @@ import org.eclipse.jgit.lib.UserConfig;
 import org.eclipse.jgit.merge.MergeStrategy;
 import org.eclipse.jgit.merge.ResolveMerger.MergeFailureReason;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.transport.CredentialsProvider;
@@ -94,7 +122,9 @@ import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
 import org.eclipse.jgit.treewalk.FileTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
 import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.FileUtils;
 import org.eclipse.jgit.util.RawParseUtils;
@@ -112,19 +142,72 @@ import com.google.common.annotations.VisibleForTesting;
 
 public class UIGit extends VCS implements IVCS {
 
-  static {
-    /**
-     * Use Apache HTTP Client instead of Sun HTTP client.
-     * This resolves the issue that Git commands (e.g., push, clone) via http(s) do not work in EE.
-     * This issue is caused by the fact that weka plugins (namely, knowledge-flow, weka-forecasting, and weka-scoring)
-     * calls java.net.Authenticator.setDefault().
-     * See here https://bugs.eclipse.org/bugs/show_bug.cgi?id=296201 for more details.
-     */
-    HttpTransport.setConnectionFactory( new HttpClientConnectionFactory() );
-  }
+  private static boolean httpTransportConfigured = false;
+
+  /**
+   * Above this number of changed paths, a full scan is faster than a path-filtered one
+   */
+  private static final int MAX_DIRTY_PATHS = 1000;
+
+  /**
+   * Upper bound of the memory (in bytes) used by formatted diffs of single files
+   */
+  private static final long DIFF_CACHE_BYTES = 8 * 1024 * 1024;
+  /**
+   * A full diff above this size is streamed to the caller without keeping a copy in the cache
+   */
+  private static final long MAX_CACHED_FULL_DIFF_BYTES = DIFF_CACHE_BYTES / 8;
+
+  /**
+   * Upper bound of the number of parsed commits and of resolved revision strings
+   */
+  private static final int COMMIT_CACHE_SIZE = 256;
+  private static final int REVSTR_CACHE_SIZE = 64;
+
+  /**
+   * Generation numbers are kept under .git so that the history is walked once per repository
+   */
+  @VisibleForTesting
+  static final String GENERATION_INDEX_FILE = "pdi-generation-index";
+  private static final int GENERATION_INDEX_SAVE_THRESHOLD = 1000;
+
+  /**
+   * Budgets of a diff unless the full diff is requested, which can be set in kettle.properties
+   */
+  private static final String DIFF_MAX_BYTES = "KETTLE_GIT_DIFF_MAX_BYTES";
+  private static final String DIFF_TIMEOUT = "KETTLE_GIT_DIFF_TIMEOUT";
+  private static final String DIFF_MAX_FILE_BYTES = "KETTLE_GIT_DIFF_MAX_FILE_BYTES";
+  private static final String TRUNCATED_KEY_SUFFIX = ":truncated";
 
-  private Git git;
+  private volatile Git git;
   private CredentialsProvider credentialsProvider;
+  private RevWalk revisionWalk;
+  private int revisionWalkPosition;
+  /**
+   * Guards the status snapshot, which is read on the UI thread and updated by operations on worker threads
+   */
+  private final Object statusLock = new Object();
+  private StatusSnapshot status;
+  private long statusIndexModified;
+  private long statusIndexLength;
+  private String statusHead;
+  private final Set<String> dirtyPaths = new HashSet<String>();
+  private WorkingTreeWatcher watcher;
+  private boolean largeRepository = false;
+  private int maxUntrackedFiles = GitRepository.DEFAULT_MAX_UNTRACKED_FILES;
+  private List<String> skippedDirectories = Collections.emptyList();
+  private DirCache dirCache;
+  private Repository dirCacheRepository;
+  private final LruCache<String, String> diffCache = new LruCache<String, String>( DIFF_CACHE_BYTES, text -> 2L * text.length() );
+  private final LruCache<ObjectId, RevCommit> commitCache = new LruCache<ObjectId, RevCommit>( COMMIT_CACHE_SIZE );
+  private final LruCache<String, ObjectId> revstrCache = new LruCache<String, ObjectId>( REVSTR_CACHE_SIZE );
+  private ListenerHandle refsChangedHandle;
+  private GenerationIndex generationIndex;
+  private long diffMaxBytes = Long.getLong( DIFF_MAX_BYTES, 1024 * 1024 );
+  private long diffTimeoutMillis = Long.getLong( DIFF_TIMEOUT, 3000 );
+  private long diffMaxFileBytes = Long.getLong( DIFF_MAX_FILE_BYTES, 20 * 1024 * 1024 );
+  private int renameLimit = ParallelRenameDetector.DEFAULT_RENAME_LIMIT;
+  private int renameScore = ParallelRenameDetector.DEFAULT_RENAME_SCORE;
 
   @Override
   public String getType() {
@@ -147,6 +230,8 @@ public class UIGit extends VCS implements IVCS {
   @VisibleForTesting
   void setGit( Git git ) {
     this.git = git;
+    discardStatus();
+    watchRefs();
   }
 
   /* (non-Javadoc)
@@ -193,18 +278,7 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public String getCommitId( String revstr ) {
-    ObjectId id = null;
-    try {
-      id = git.getRepository().resolve( revstr );
-    } catch ( RevisionSyntaxException e ) {
-      e.printStackTrace();
-    } catch ( AmbiguousObjectException e ) {
-      e.printStackTrace();
-    } catch ( IncorrectObjectTypeException e ) {
-      e.printStackTrace();
-    } catch ( IOException e ) {
-      e.printStackTrace();
-    }
+    ObjectId id = resolveId( revstr );
     if ( id == null ) {
       return null;
     } else {
@@ -212,9 +286,18 @@ public class UIGit extends VCS implements IVCS {
     }
   }
 
+  /**
+   * Equivalent of <tt>revstr~</tt>, but the parent is taken from the cached commit
+   * @see org.pentaho.di.git.spoon.model.VCS#getParentCommitId(java.lang.String)
+   */
   @Override
   public String getParentCommitId( String revstr ) {
-    return getCommitId( revstr + "~" );
+    RevCommit commit = resolve( revstr );
+    if ( commit == null || commit.getParentCount() == 0 ) {
+      return null;
+    } else {
+      return commit.getParent( 0 ).getName();
+    }
   }
 
   /* (non-Javadoc)
@@ -235,6 +318,111 @@ public class UIGit extends VCS implements IVCS {
     }
   }
 
+  /* (non-Javadoc)
+   * @see org.pentaho.di.git.spoon.model.VCS#getAheadBehind()
+   */
+  @Override
+  public int[] getAheadBehind() {
+    // Called off the UI thread, so the repository can be closed or replaced meanwhile
+    Git git = this.git;
+    if ( git == null ) {
+      return null;
+    }
+    try {
+      Repository repository = git.getRepository();
+      String branch = repository.getFullBranch();
+      if ( branch == null || !branch.startsWith( Constants.R_HEADS ) ) { // detached
+        return null;
+      }
+      String trackingBranch = new BranchConfig( repository.getConfig(), Repository.shortenRefName( branch ) ).getTrackingBranch();
+      if ( trackingBranch == null ) {
+        return null;
+      }
+      Ref local = repository.exactRef( branch );
+      Ref upstream = repository.exactRef( trackingBranch );
+      if ( local == null || upstream == null ) {
+        return null;
+      }
+      GenerationIndex index = openGenerationIndex( git );
+      int[] aheadBehind;
+      try ( RevWalk walk = createRevWalk() ) {
+        aheadBehind = index.countAheadBehind( walk,
+          walk.parseCommit( local.getObjectId() ), walk.parseCommit( upstream.getObjectId() ) );
+      }
+      saveGenerationIndex( index, repository, GENERATION_INDEX_SAVE_THRESHOLD );
+      return git == this.git ? aheadBehind : null;
+    } catch ( Exception e ) {
+      if ( git == this.git ) {
+        e.printStackTrace();
+      } // Otherwise cancelled by closeRepo()
+      return null;
+    }
+  }
+
+  /**
+   * Open the index saved for the repository on first use, which is off the UI thread
+   * @param git the repository the caller has started with
+   * @return
+   */
+  private synchronized GenerationIndex openGenerationIndex( Git git ) {
+    if ( git != this.git ) {
+      throw new CancellationException( "Closed" );
+    }
+    if ( generationIndex == null ) {
+      generationIndex = new GenerationIndex();
+      try {
+        generationIndex.load( getGenerationIndexFile( git.getRepository() ) );
+      } catch ( IOException e ) {
+        e.printStackTrace(); // Rebuilt on demand
+      }
+    }
+    return generationIndex;
+  }
+
+  /**
+   * @param index
+   * @param repository
+   * @param threshold the number of unsaved entries that is worth rewriting the file
+   */
+  private void saveGenerationIndex( GenerationIndex index, Repository repository, int threshold ) {
+    if ( index.getUnsavedCount() >= threshold ) {
+      try ( ObjectReader reader = repository.newObjectReader() ) {
+        index.save( getGenerationIndexFile( repository ), reader );
+      } catch ( IOException e ) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private File getGenerationIndexFile( Repository repository ) {
+    return new File( repository.getDirectory(), GENERATION_INDEX_FILE );
+  }
+
+  /**
+   * Cancel a count in the background, and save what has been indexed so far
+   * @param repository to save the index for, or null not to save
+   */
+  private void closeGenerationIndex( Repository repository ) {
+    GenerationIndex index;
+    synchronized ( this ) {
+      index = generationIndex;
+      generationIndex = null;
+    }
+    if ( index == null ) {
+      return;
+    }
+    index.cancel();
+    if ( repository != null ) {
+      saveGenerationIndex( index, repository, 1 );
+    }
+    index.close();
+  }
+
+  @VisibleForTesting
+  synchronized GenerationIndex getGenerationIndex() {
+    return generationIndex;
+  }
+
   /* (non-Javadoc)
    * @see org.pentaho.di.git.spoon.model.VCS#getLocalBranches()
    */
@@ -336,6 +524,7 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public boolean commit( String authorName, String message ) {
+    discardStatus();
     PersonIdent author = RawParseUtils.parsePersonIdent( authorName );
     // Set the local time
     PersonIdent author2 = new PersonIdent( author.getName(), author.getEmailAddress(),
@@ -355,24 +544,49 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public UIRepositoryObjectRevisions getRevisions() {
+    return getRevisions( 0, Integer.MAX_VALUE );
+  }
+
+  /**
+   * Get a page of revisions by walking the history from HEAD.
+   * The walk is kept open so that the next page continues from where the last page ended
+   * instead of walking the history again from HEAD.
+   * @see org.pentaho.di.git.spoon.model.IVCS#getRevisions(int, int)
+   */
+  @Override
+  public UIRepositoryObjectRevisions getRevisions( int skip, int limit ) {
     UIRepositoryObjectRevisions revisions = new UIRepositoryObjectRevisions();
     try {
-      if ( !isClean() || git.getRepository().getRepositoryState() == RepositoryState.MERGING_RESOLVED ) {
-        PurObjectRevision rev = new PurObjectRevision(
-            WORKINGTREE,
-            "*",
-            new Date(),
-            " // " + IVCS.WORKINGTREE );
-        revisions.add( new UIRepositoryObjectRevision( (ObjectRevision) rev ) );
+      if ( skip == 0 ) {
+        if ( !isClean() || git.getRepository().getRepositoryState() == RepositoryState.MERGING_RESOLVED ) {
+          PurObjectRevision rev = new PurObjectRevision(
+              WORKINGTREE,
+              "*",
+              new Date(),
+              " // " + IVCS.WORKINGTREE );
+          revisions.add( new UIRepositoryObjectRevision( (ObjectRevision) rev ) );
+        }
+      }
+      // Start over from HEAD unless the requested page follows the last one
+      if ( skip == 0 || revisionWalk == null || skip != revisionWalkPosition ) {
+        startRevisionWalk();
+        for ( ; revisionWalkPosition < skip; revisionWalkPosition++ ) {
+          if ( revisionWalk.next() == null ) {
+            return revisions;
+          }
+        }
       }
-      Iterable<RevCommit> iterable = git.log().call();
-      for ( RevCommit commit : iterable ) {
+      RevCommit commit;
+      for ( int i = 0; i < limit && ( commit = revisionWalk.next() ) != null; i++ ) {
+        revisionWalkPosition++;
         PurObjectRevision rev = new PurObjectRevision(
           commit.getName(),
           commit.getAuthorIdent().getName(),
           commit.getAuthorIdent().getWhen(),
           commit.getShortMessage() );
         revisions.add( new UIRepositoryObjectRevision( (ObjectRevision) rev ) );
+        // The walk keeps every commit it has returned, so do not keep their messages too
+        commit.disposeBody();
       }
     } catch ( Exception e ) {
       // Do nothing
@@ -380,32 +594,34 @@ public class UIGit extends VCS implements IVCS {
     return revisions;
   }
 
+  private void startRevisionWalk() throws IOException {
+    closeRevisionWalk();
+    revisionWalk = createRevWalk();
+    revisionWalkPosition = 0;
+    ObjectId head = git.getRepository().resolve( Constants.HEAD );
+    if ( head != null ) { // null if there is no commit yet
+      revisionWalk.markStart( revisionWalk.parseCommit( head ) );
+    }
+  }
+
+  private void closeRevisionWalk() {
+    if ( revisionWalk != null ) {
+      revisionWalk.close();
+      revisionWalk = null;
+    }
+  }
+
   /* (non-Javadoc)
    * @see org.pentaho.di.git.spoon.model.VCS#getUnstagedFiles()
    */
   @Override
   public List<UIFile> getUnstagedFiles() {
-    List<UIFile> files = new ArrayList<UIFile>();
-    Status status = null;
     try {
-      status = git.status().call();
+      return getStatus().getUnstagedFiles();
     } catch ( Exception e ) {
       e.printStackTrace();
-      return files;
+      return new ArrayList<UIFile>();
     }
-    status.getUntracked().forEach( name -> {
-      files.add( new UIFile( name, ChangeType.ADD, false ) );
-    } );
-    status.getModified().forEach( name -> {
-      files.add( new UIFile( name, ChangeType.MODIFY, false ) );
-    } );
-    status.getConflicting().forEach( name -> {
-      files.add( new UIFile( name, ChangeType.MODIFY, false ) );
-    } );
-    status.getMissing().forEach( name -> {
-      files.add( new UIFile( name, ChangeType.DELETE, false ) );
-    } );
-    return files;
   }
 
   /* (non-Javadoc)
@@ -413,24 +629,12 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public List<UIFile> getStagedFiles() {
-    List<UIFile> files = new ArrayList<UIFile>();
-    Status status = null;
     try {
-      status = git.status().call();
+      return getStatus().getStagedFiles();
     } catch ( Exception e ) {
       e.printStackTrace();
-      return files;
+      return new ArrayList<UIFile>();
     }
-    status.getAdded().forEach( name -> {
-      files.add( new UIFile( name, ChangeType.ADD, true ) );
-    } );
-    status.getChanged().forEach( name -> {
-      files.add( new UIFile( name, ChangeType.MODIFY, true ) );
-    } );
-    status.getRemoved().forEach( name -> {
-      files.add( new UIFile( name, ChangeType.DELETE, true ) );
-    } );
-    return files;
   }
 
   /* (non-Javadoc)
@@ -443,9 +647,10 @@ public class UIGit extends VCS implements IVCS {
       List<DiffEntry> diffs = getDiffCommand( oldCommitId, newCommitId )
         .setShowNameAndStatusOnly( true )
         .call();
-      RenameDetector rd = new RenameDetector( git.getRepository() );
-      rd.addAll( diffs );
-      diffs = rd.compute();
+      ParallelRenameDetector rd = new ParallelRenameDetector( git.getRepository() );
+      rd.setRenameLimit( renameLimit );
+      rd.setRenameScore( renameScore );
+      diffs = rd.compute( diffs );
       diffs.forEach( diff -> {
         files.add( new UIFile( diff.getChangeType() == ChangeType.DELETE ? diff.getOldPath() : diff.getNewPath(),
           diff.getChangeType(), false ) );
@@ -473,8 +678,25 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public void initRepo( String baseDirectory ) throws Exception {
+    closeRevisionWalk();
+    discardStatus();
     git = Git.init().setDirectory( new File( baseDirectory ) ).call();
     directory = baseDirectory;
+    startWatcher();
+    watchRefs();
+  }
+
+  /* (non-Javadoc)
+   * @see org.pentaho.di.git.spoon.model.VCS#configure(org.pentaho.di.git.spoon.model.GitRepository)
+   */
+  @Override
+  public void configure( GitRepository repo ) {
+    largeRepository = repo.isLargeRepository();
+    maxUntrackedFiles = repo.getMaxUntrackedFiles();
+    skippedDirectories = largeRepository ? repo.getSkippedDirectoryList() : Collections.<String>emptyList();
+    renameLimit = repo.getRenameLimit();
+    renameScore = Math.max( 0, Math.min( 100, repo.getRenameScore() ) );
+    discardStatus();
   }
 
   /* (non-Javadoc)
@@ -482,8 +704,13 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public void openRepo( String baseDirectory ) throws Exception {
+    closeRevisionWalk();
+    discardStatus();
     git = Git.open( new File( baseDirectory ) );
     directory = baseDirectory;
+    startWatcher();
+    watchRefs();
+    closeGenerationIndex( null ); // Opened on first use, which is off the UI thread
   }
 
   /* (non-Javadoc)
@@ -491,8 +718,16 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public void closeRepo() {
-    git.close();
-    git = null;
+    Git closing = git;
+    git = null; // Makes a count of ahead/behind in the background stale
+    closeRevisionWalk();
+    closeWatcher();
+    discardStatus();
+    diffCache.clear();
+    unwatchRefs();
+    commitCache.clear();
+    closeGenerationIndex( closing.getRepository() );
+    closing.close();
   }
 
   /* (non-Javadoc)
@@ -500,19 +735,38 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public void add( String filepattern ) {
+    add( Collections.singletonList( filepattern ) );
+  }
+
+  /**
+   * Add files with a single AddCommand, which reads and writes the index once
+   * @see org.pentaho.di.git.spoon.model.IVCS#add(java.util.Collection)
+   */
+  @Override
+  public void add( Collection<String> filepatterns ) {
+    if ( filepatterns.isEmpty() ) {
+      return;
+    }
+    markDirty( filepatterns );
     try {
-      if ( filepattern.endsWith( ".ours" ) || filepattern.endsWith( ".theirs" ) ) {
-        FileUtils.rename( new File( directory, filepattern ),
-            new File( directory, FilenameUtils.removeExtension( filepattern ) ),
-            StandardCopyOption.REPLACE_EXISTING );
-        filepattern = FilenameUtils.removeExtension( filepattern );
-        org.apache.commons.io.FileUtils.deleteQuietly( new File( directory, filepattern + ".ours" ) );
-        org.apache.commons.io.FileUtils.deleteQuietly( new File( directory, filepattern + ".theirs" ) );
+      AddCommand cmd = git.add();
+      for ( String filepattern : filepatterns ) {
+        if ( filepattern.endsWith( ".ours" ) || filepattern.endsWith( ".theirs" ) ) {
+          markDirty( Collections.singletonList( FilenameUtils.removeExtension( filepattern ) ) );
+          FileUtils.rename( new File( directory, filepattern ),
+              new File( directory, FilenameUtils.removeExtension( filepattern ) ),
+              StandardCopyOption.REPLACE_EXISTING );
+          filepattern = FilenameUtils.removeExtension( filepattern );
+          org.apache.commons.io.FileUtils.deleteQuietly( new File( directory, filepattern + ".ours" ) );
+          org.apache.commons.io.FileUtils.deleteQuietly( new File( directory, filepattern + ".theirs" ) );
+        }
+        cmd.addFilepattern( filepattern );
       }
-      git.add().addFilepattern( filepattern ).call();
+      cmd.call();
     } catch ( Exception e ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
     }
+    stampIndex();
   }
 
   /* (non-Javadoc)
@@ -520,11 +774,26 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public void rm( String filepattern ) {
+    rm( Collections.singletonList( filepattern ) );
+  }
+
+  /* (non-Javadoc)
+   * @see org.pentaho.di.git.spoon.model.VCS#rm(java.util.Collection)
+   */
+  @Override
+  public void rm( Collection<String> filepatterns ) {
+    if ( filepatterns.isEmpty() ) {
+      return;
+    }
+    markDirty( filepatterns );
     try {
-      git.rm().addFilepattern( filepattern ).call();
+      RmCommand cmd = git.rm();
+      filepatterns.forEach( cmd::addFilepattern );
+      cmd.call();
     } catch ( Exception e ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
     }
+    stampIndex();
   }
 
   /**
@@ -533,6 +802,7 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public void reset( String name ) {
+    discardStatus();
     try {
       git.reset().setRef( name ).call();
     } catch ( Exception e ) {
@@ -545,15 +815,31 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public void resetPath( String path ) {
+    resetPaths( Collections.singletonList( path ) );
+  }
+
+  /**
+   * Reset files to HEAD (mixed)
+   */
+  @Override
+  public void resetPaths( Collection<String> paths ) {
+    if ( paths.isEmpty() ) {
+      return;
+    }
+    markDirty( paths );
     try {
-      git.reset().addPath( path ).call();
+      ResetCommand cmd = git.reset();
+      paths.forEach( cmd::addPath );
+      cmd.call();
     } catch ( Exception e ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
     }
+    stampIndex();
   }
 
   @VisibleForTesting
   void resetHard() throws Exception {
+    discardStatus();
     git.reset().setMode( ResetType.HARD ).call();
   }
 
@@ -564,19 +850,25 @@ public class UIGit extends VCS implements IVCS {
         BaseMessages.getString( PKG, "Git.Dialog.UncommittedChanges.Message" ) );
       return false;
     }
+    discardStatus();
     String commit = resolve( Constants.HEAD ).getName();
     RevertCommand cmd = git.revert();
-    for ( int i = 0; i < getRevisions().size(); i++ ) {
-      String commitId = getRevisions().get( i ).getName();
+    try ( RevWalk rw = createRevWalk() ) {
       /*
        * Revert commits from HEAD to the specified commit in reverse order.
+       * The walk stops at the parents of the specified commit.
        */
-      cmd.include( resolve( commitId ) );
-      if ( commitId.equals( name ) ) {
-        break;
+      RevCommit target = rw.parseCommit( git.getRepository().resolve( name ) );
+      rw.markStart( rw.parseCommit( git.getRepository().resolve( Constants.HEAD ) ) );
+      for ( RevCommit parent : target.getParents() ) {
+        rw.markUninteresting( parent );
+      }
+      for ( RevCommit c : rw ) {
+        cmd.include( c );
+        if ( c.equals( target ) ) {
+          break;
+        }
       }
-    }
-    try {
       cmd.call();
       git.reset().setRef( commit ).call();
       return true;
@@ -596,14 +888,19 @@ public class UIGit extends VCS implements IVCS {
         BaseMessages.getString( PKG, "Git.Dialog.UncommittedChanges.Message" ) );
       return false;
     }
+    discardStatus();
     if ( !hasRemote() ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Please setup a remote" );
       return false;
     }
 
     try {
+      configureHttpTransport();
       // Pull = Fetch + Merge
-      git.fetch().setCredentialsProvider( credentialsProvider ).call();
+      git.fetch()
+        .setCredentialsProvider( credentialsProvider )
+        .setProgressMonitor( getProgressMonitor() )
+        .call();
       return mergeBranch( Constants.DEFAULT_REMOTE_NAME + "/" + getBranch(), MergeStrategy.RECURSIVE.getName() );
     } catch ( TransportException e ) {
       if ( e.getMessage().contains( "Authentication is required but no CredentialsProvider has been registered" )
@@ -635,21 +932,15 @@ public class UIGit extends VCS implements IVCS {
       return false;
     }
     String name = null;
-    List<String> names;
-    EnterSelectionDialog esd;
     switch ( type ) {
       case IVCS.TYPE_BRANCH:
-        names = getLocalBranches();
-        esd = getEnterSelectionDialog( names.toArray( new String[names.size()] ), "Select Branch", "Select the branch to push..." );
-        name = esd.open();
+        name = select( getLocalBranches(), "Select Branch", "Select the branch to push..." );
         if ( name == null ) {
           return false;
         }
         break;
       case IVCS.TYPE_TAG:
-        names = getTags();
-        esd = getEnterSelectionDialog( names.toArray( new String[names.size()] ), "Select Tag", "Select the tag to push..." );
-        name = esd.open();
+        name = select( getTags(), "Select Tag", "Select the tag to push..." );
         if ( name == null ) {
           return false;
         }
@@ -658,8 +949,10 @@ public class UIGit extends VCS implements IVCS {
     try {
       name = name == null ? null : getExpandedName( name, type );
 
+      configureHttpTransport();
       PushCommand cmd = git.push();
       cmd.setCredentialsProvider( credentialsProvider );
+      cmd.setProgressMonitor( getProgressMonitor() );
       if ( name != null ) {
         cmd.setRefSpecs( new RefSpec( name ) );
       }
@@ -717,15 +1010,412 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public String diff( String oldCommitId, String newCommitId, String file ) {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    return diff( oldCommitId, newCommitId, file, false );
+  }
+
+  /* (non-Javadoc)
+   * @see org.pentaho.di.git.spoon.model.VCS#diff(java.lang.String, java.lang.String, java.lang.String, boolean)
+   */
+  @Override
+  public String diff( String oldCommitId, String newCommitId, String file, boolean full ) {
+    StringBuilder diff = new StringBuilder();
     try {
-      getDiffCommand( oldCommitId, newCommitId )
-        .setOutputStream( out )
-        .setPathFilter( file == null ? TreeFilter.ALL : PathFilter.create( file ) )
-        .call();
-      return out.toString( "UTF-8" );
+      diff( oldCommitId, newCommitId, file, full, diff );
+    } catch ( IOException e ) {
+      return e.getMessage(); // Never happens with StringBuilder
+    }
+    return diff.toString();
+  }
+
+  /* (non-Javadoc)
+   * @see org.pentaho.di.git.spoon.model.VCS#diff(java.lang.String, java.lang.String, java.lang.String, boolean, java.lang.Appendable)
+   */
+  @Override
+  public void diff( String oldCommitId, String newCommitId, String file, boolean full, Appendable out ) throws IOException {
+    String key = file == null ? null : getDiffCacheKey( oldCommitId, newCommitId, file );
+    if ( key != null ) {
+      // A complete diff serves both modes, whereas a truncated one only the budgeted mode
+      String cached = diffCache.get( key );
+      if ( cached == null && !full ) {
+        cached = diffCache.get( key + TRUNCATED_KEY_SUFFIX );
+      }
+      if ( cached != null ) {
+        out.append( cached );
+        return;
+      }
+    }
+    try {
+      if ( !full && file != null ) {
+        // Blob sizes are known without loading the contents
+        long size = Math.max( getContentSize( oldCommitId, file ), getContentSize( newCommitId, file ) );
+        if ( size > diffMaxFileBytes ) {
+          out.append( putDiff( key, "\\ " + file + " is too large to diff (" + size + " bytes)\n" + DIFF_TRUNCATED, true ) );
+          return;
+        }
+      }
+      // The patch is decoded into the text as it is formatted, and copied for the cache only while it is small
+      BudgetOutputStream stream = new BudgetOutputStream(
+        new WriterOutputStream( new AppendableWriter( out ), StandardCharsets.UTF_8, 8192, false ),
+        full ? Long.MAX_VALUE : diffMaxBytes, key == null ? 0 : ( full ? MAX_CACHED_FULL_DIFF_BYTES : Long.MAX_VALUE ) );
+      String reason = null;
+      try ( DiffFormatter formatter = new DiffFormatter( stream ) ) {
+        formatter.setRepository( git.getRepository() );
+        formatter.setDiffAlgorithm( DiffAlgorithm.getAlgorithm( getDiffAlgorithm() ) );
+        if ( !full ) {
+          formatter.setDiffComparator( new DeadlineComparator( System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( diffTimeoutMillis ) ) );
+        }
+        formatter.setPathFilter( file == null ? TreeFilter.ALL : PathFilter.create( file ) );
+        for ( DiffEntry entry : formatter.scan( getTreeIterator( oldCommitId ), getTreeIterator( newCommitId ) ) ) {
+          if ( file != null && entry.getOldMode() != FileMode.GITLINK && entry.getNewMode() != FileMode.GITLINK
+              && ( isBinary( oldCommitId, file ) || isBinary( newCommitId, file ) ) ) {
+            // The formatter would tell so only after loading both sides
+            stream.write( ( "diff --git a/" + file + " b/" + file + "\nBinary files differ\n" ).getBytes( StandardCharsets.UTF_8 ) );
+          } else {
+            formatter.format( entry );
+          }
+        }
+        formatter.flush();
+      } catch ( BudgetExceededException e ) {
+        reason = "Diff exceeds " + diffMaxBytes + " bytes";
+      } catch ( DeadlineExceededException e ) {
+        reason = "Diff takes longer than " + diffTimeoutMillis + " ms";
+      } finally {
+        stream.close();
+      }
+      String trailer = "";
+      if ( reason != null ) {
+        trailer = ( stream.endsWithNewLine() ? "" : "\n" ) + "\\ " + reason + "\n" + DIFF_TRUNCATED;
+        out.append( trailer );
+      }
+      String copy = stream.getCopy();
+      if ( copy != null ) {
+        putDiff( key, copy + trailer, reason != null );
+      }
     } catch ( Exception e ) {
-      return e.getMessage();
+      if ( e.getMessage() != null ) {
+        out.append( e.getMessage() );
+      }
+    }
+  }
+
+  /**
+   * @return diff.algorithm of the repository configuration, or histogram if not set
+   */
+  @VisibleForTesting
+  SupportedAlgorithm getDiffAlgorithm() {
+    return git.getRepository().getConfig().getEnum( ConfigConstants.CONFIG_DIFF_SECTION, null,
+      ConfigConstants.CONFIG_KEY_ALGORITHM, SupportedAlgorithm.HISTOGRAM );
+  }
+
+  private String putDiff( String key, String diff, boolean truncated ) {
+    if ( key != null ) {
+      diffCache.put( truncated ? key + TRUNCATED_KEY_SUFFIX : key, diff );
+    }
+    return diff;
+  }
+
+  @VisibleForTesting
+  void setDiffBudget( long maxBytes, long timeoutMillis, long maxFileBytes ) {
+    diffMaxBytes = maxBytes;
+    diffTimeoutMillis = timeoutMillis;
+    diffMaxFileBytes = maxFileBytes;
+  }
+
+  /**
+   * Passes the patch through and stops the formatter by an exception when it grows beyond the byte budget.
+   * A copy is kept for the diff cache unless the patch grows beyond the copy limit.
+   */
+  private static class BudgetOutputStream extends OutputStream {
+    private final OutputStream out;
+    private final long budget;
+    private final long copyLimit;
+    private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+    private long count = 0;
+    private int last = -1;
+
+    BudgetOutputStream( OutputStream out, long budget, long copyLimit ) {
+      this.out = out;
+      this.budget = budget;
+      this.copyLimit = copyLimit;
+    }
+
+    @Override
+    public void write( int b ) throws IOException {
+      write( new byte[] { (byte) b }, 0, 1 );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len ) throws IOException {
+      if ( count + len > budget ) {
+        // Cut before a UTF-8 sequence that does not fit; the formatter writes whole lines
+        int cut = (int) Math.max( 0, budget - count );
+        while ( cut > 0 && ( b[off + cut] & 0xC0 ) == 0x80 ) {
+          cut--;
+        }
+        writeThrough( b, off, cut );
+        throw new BudgetExceededException();
+      }
+      writeThrough( b, off, len );
+    }
+
+    private void writeThrough( byte[] b, int off, int len ) throws IOException {
+      if ( len == 0 ) {
+        return;
+      }
+      out.write( b, off, len );
+      count += len;
+      last = b[off + len - 1];
+      if ( copy != null ) {
+        if ( copy.size() + len > copyLimit ) {
+          copy = null;
+        } else {
+          copy.write( b, off, len );
+        }
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+
+    boolean endsWithNewLine() {
+      return count == 0 || last == '\n';
+    }
+
+    /**
+     * @return the whole patch written, or null if it has grown beyond the copy limit
+     * @throws UnsupportedEncodingException
+     */
+    String getCopy() throws UnsupportedEncodingException {
+      return copy == null ? null : copy.toString( "UTF-8" );
+    }
+  }
+
+  /**
+   * Writes into any text (e.g., a StringBuilder) for {@link WriterOutputStream}
+   */
+  private static class AppendableWriter extends Writer {
+    private final Appendable out;
+
+    AppendableWriter( Appendable out ) {
+      this.out = out;
+    }
+
+    @Override
+    public void write( char[] cbuf, int off, int len ) throws IOException {
+      out.append( CharBuffer.wrap( cbuf, off, len ) );
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static class BudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * The default line comparator that aborts the diff algorithm once the deadline has passed.
+   * Lines are compared far more often than anything else, so the clock is checked only every so often.
+   */
+  private static class DeadlineComparator extends RawTextComparator {
+    private final long deadline;
+    private int calls = 0;
+
+    DeadlineComparator( long deadline ) {
+      this.deadline = deadline;
+    }
+
+    private void check() {
+      if ( ( ++calls & 0x3FF ) == 0 && System.nanoTime() > deadline ) {
+        throw new DeadlineExceededException();
+      }
+    }
+
+    @Override
+    public boolean equals( RawText a, int ai, RawText b, int bi ) {
+      check();
+      return RawTextComparator.DEFAULT.equals( a, ai, b, bi );
+    }
+
+    @Override
+    public int hash( RawText seq, int lno ) {
+      check();
+      return super.hash( seq, lno );
+    }
+
+    @Override
+    public Edit reduceCommonStartEnd( RawText a, RawText b, Edit e ) {
+      return RawTextComparator.DEFAULT.reduceCommonStartEnd( a, b, e );
+    }
+
+    /**
+     * The same hash as {@link RawTextComparator#DEFAULT}
+     */
+    @Override
+    protected int hashRegion( byte[] raw, int ptr, int end ) {
+      int hash = 5381;
+      for ( ; ptr < end; ptr++ ) {
+        hash = ( ( hash << 5 ) + hash ) + ( raw[ptr] & 0xff );
+      }
+      return hash;
+    }
+  }
+
+  private static class DeadlineExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * @return the size in bytes of a file at a commit, or 0 if it does not exist there
+   */
+  private long getContentSize( String commitId, String file ) throws IOException {
+    Repository repository = git.getRepository();
+    if ( commitId == null ) {
+      return 0;
+    } else if ( commitId.equals( WORKINGTREE ) ) {
+      return new File( repository.getWorkTree(), file ).length();
+    }
+    ObjectId blobId = getBlobId( commitId, file );
+    if ( blobId == null ) {
+      return 0;
+    }
+    try ( ObjectReader reader = repository.newObjectReader() ) {
+      return reader.getObjectSize( blobId, Constants.OBJ_BLOB );
+    }
+  }
+
+  /**
+   * Tell a binary file as JGit does, but reading only the head of the content
+   * @return false if it does not exist at the commit
+   */
+  private boolean isBinary( String commitId, String file ) throws IOException {
+    Repository repository = git.getRepository();
+    InputStream in;
+    if ( commitId == null ) {
+      return false;
+    } else if ( commitId.equals( WORKINGTREE ) ) {
+      File f = new File( repository.getWorkTree(), file );
+      if ( !f.isFile() ) {
+        return false;
+      }
+      in = new FileInputStream( f );
+    } else {
+      ObjectId blobId = getBlobId( commitId, file );
+      if ( blobId == null ) {
+        return false;
+      }
+      in = repository.open( blobId, Constants.OBJ_BLOB ).openStream();
+    }
+    try ( InputStream head = in ) {
+      return RawText.isBinary( head );
+    }
+  }
+
+  /**
+   * @param commitId a commit or {@link IVCS#INDEX}
+   * @return the blob id of a file, or null if it does not exist there
+   */
+  private ObjectId getBlobId( String commitId, String file ) throws IOException {
+    Repository repository = git.getRepository();
+    if ( commitId.equals( INDEX ) ) {
+      DirCacheEntry entry = readDirCache().getEntry( file );
+      return entry == null ? null : entry.getObjectId();
+    }
+    ObjectId id = repository.resolve( commitId );
+    if ( id == null ) {
+      return null;
+    }
+    try ( RevWalk rw = new RevWalk( repository );
+        TreeWalk tw = TreeWalk.forPath( repository, file, rw.parseTree( id ) ) ) {
+      return tw == null ? null : tw.getObjectId( 0 );
+    }
+  }
+
+  /**
+   * Read the index, reusing the last read until the file is changed
+   * @return
+   * @throws IOException
+   */
+  @VisibleForTesting
+  synchronized DirCache readDirCache() throws IOException {
+    Repository repository = git.getRepository();
+    if ( dirCache == null || dirCacheRepository != repository || dirCache.isOutdated() ) {
+      dirCache = repository.readDirCache();
+      dirCacheRepository = repository;
+    }
+    return dirCache;
+  }
+
+  @VisibleForTesting
+  LruCache<String, String> getDiffCache() {
+    return diffCache;
+  }
+
+  /**
+   * The diff of a file is determined by its path and the contents on both sides
+   * @return null if the diff should not be cached
+   */
+  private String getDiffCacheKey( String oldCommitId, String newCommitId, String file ) {
+    try {
+      String oldId = getContentKey( oldCommitId, file );
+      String newId = getContentKey( newCommitId, file );
+      return oldId == null || newId == null ? null : oldId + ":" + newId + ":" + file;
+    } catch ( IOException e ) {
+      return null;
+    }
+  }
+
+  /**
+   * Identify the content of a file by its blob id, which is cheaper than diffing
+   * @return null if the content cannot be identified
+   */
+  private String getContentKey( String commitId, String file ) throws IOException {
+    Repository repository = git.getRepository();
+    if ( commitId == null ) {
+      return ObjectId.zeroId().getName();
+    } else if ( commitId.equals( WORKINGTREE ) ) {
+      File f = new File( repository.getWorkTree(), file );
+      if ( !f.exists() ) {
+        return ObjectId.zeroId().getName();
+      }
+      // Files in the working tree are not hashed, so a file is identified by its index entry
+      // only while it is clean by the timestamp and size, as JGit decides.
+      // A racily clean entry (i.e., not older than the index) may hide a change of the same size.
+      DirCacheEntry entry = readDirCache().getEntry( file );
+      if ( entry == null || entry.getStage() != DirCacheEntry.STAGE_0 || entry.isSmudged() || !f.isFile()
+          || entry.getLength() != (int) f.length() || entry.getLastModified() != f.lastModified()
+          || entry.getLastModified() >= repository.getIndexFile().lastModified() ) {
+        return null;
+      }
+      return entry.getObjectId().getName();
+    } else if ( commitId.equals( INDEX ) ) {
+      DirCacheEntry entry = readDirCache().getEntry( file );
+      if ( entry == null ) {
+        return ObjectId.zeroId().getName();
+      }
+      // A conflicted file has more than one stage
+      return entry.getStage() == DirCacheEntry.STAGE_0 ? entry.getObjectId().getName() : null;
+    } else {
+      ObjectId id = repository.resolve( commitId );
+      if ( id == null ) { // commitId does not exist
+        return ObjectId.zeroId().getName();
+      }
+      try ( RevWalk rw = new RevWalk( repository );
+          TreeWalk tw = TreeWalk.forPath( repository, file, rw.parseTree( id ) ) ) {
+        return tw == null ? ObjectId.zeroId().getName() : tw.getObjectId( 0 ).getName();
+      }
     }
   }
 
@@ -765,13 +1455,118 @@ public class UIGit extends VCS implements IVCS {
     return null;
   }
 
+  /* (non-Javadoc)
+   * @see org.pentaho.di.git.spoon.model.VCS#open(java.util.Collection, java.lang.String, org.pentaho.di.git.spoon.model.IVCS.ContentConsumer)
+   */
+  @Override
+  public void open( Collection<String> files, String commitId, ContentConsumer consumer ) throws IOException {
+    if ( files.isEmpty() ) {
+      return;
+    }
+    if ( commitId.equals( WORKINGTREE ) ) {
+      for ( String file : files ) {
+        File f = new File( getDirectory() + Const.FILE_SEPARATOR + file );
+        if ( f.isFile() ) {
+          try ( InputStream in = new FileInputStream( f ) ) {
+            consumer.accept( file, in );
+          }
+        }
+      }
+      return;
+    }
+    RevCommit commit = resolve( commitId );
+    if ( commit == null ) {
+      throw new IOException( "Cannot resolve " + commitId );
+    }
+    // One walk over the tree and one reader for all the files
+    Set<String> paths = new HashSet<String>( files );
+    try ( ObjectReader reader = git.getRepository().newObjectReader();
+        TreeWalk tw = new TreeWalk( reader ) ) {
+      tw.addTree( commit.getTree() );
+      tw.setFilter( PathFilterGroup.createFromStrings( paths ) );
+      tw.setRecursive( true );
+      while ( tw.next() ) {
+        // The filter also matches files under a directory of the same name
+        if ( !paths.contains( tw.getPathString() ) || tw.getFileMode( 0 ).getObjectType() != Constants.OBJ_BLOB ) {
+          continue;
+        }
+        try ( InputStream in = reader.open( tw.getObjectId( 0 ), Constants.OBJ_BLOB ).openStream() ) {
+          consumer.accept( tw.getPathString(), in );
+        }
+      }
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.pentaho.di.git.spoon.model.IVCS#getContentId(java.lang.String, java.lang.String)
+   */
+  @Override
+  public String getContentId( String file, String commitId ) {
+    if ( commitId.equals( WORKINGTREE ) ) {
+      return null;
+    }
+    RevCommit commit = resolve( commitId );
+    if ( commit == null ) {
+      return null;
+    }
+    try ( TreeWalk tw = TreeWalk.forPath( git.getRepository(), file, commit.getTree() ) ) {
+      return tw == null ? null : tw.getObjectId( 0 ).getName();
+    } catch ( IOException e ) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  /**
+   * Use Apache HTTP Client instead of Sun HTTP client.
+   * This resolves the issue that Git commands (e.g., push, clone) via http(s) do not work in EE.
+   * This issue is caused by the fact that weka plugins (namely, knowledge-flow, weka-forecasting, and weka-scoring)
+   * calls java.net.Authenticator.setDefault().
+   * See here https://bugs.eclipse.org/bugs/show_bug.cgi?id=296201 for more details.
+   * This is done before the first command that talks to a remote rather than when this class is loaded.
+   */
+  private static synchronized void configureHttpTransport() {
+    if ( !httpTransportConfigured ) {
+      HttpTransport.setConnectionFactory( new HttpClientConnectionFactory() );
+      httpTransportConfigured = true;
+    }
+  }
+
   public boolean cloneRepo( String directory, String uri ) {
+    return cloneRepo( directory, uri, null, false );
+  }
+
+  /* (non-Javadoc)
+   * @see org.pentaho.di.git.spoon.model.IVCS#cloneRepo(java.lang.String, java.lang.String, java.lang.String, boolean)
+   */
+  @Override
+  public boolean cloneRepo( String directory, String uri, String branch, boolean singleBranch ) {
+    configureHttpTransport();
     CloneCommand cmd = Git.cloneRepository();
     cmd.setDirectory( new File( directory ) );
     cmd.setURI( uri );
     cmd.setCredentialsProvider( credentialsProvider );
+    cmd.setProgressMonitor( getProgressMonitor() );
+    String ref = null;
+    if ( branch != null && !branch.isEmpty() ) {
+      ref = branch.startsWith( Constants.R_REFS ) ? branch : Constants.R_HEADS + branch;
+      cmd.setBranch( ref );
+      if ( singleBranch ) {
+        cmd.setCloneAllBranches( false );
+        cmd.setBranchesToClone( Collections.singleton( ref ) );
+      }
+    }
     try {
       Git git = cmd.call();
+      if ( ref != null && singleBranch ) {
+        // Keep later fetches to this branch as well
+        StoredConfig config = git.getRepository().getConfig();
+        RemoteConfig remoteConfig = new RemoteConfig( config, Constants.DEFAULT_REMOTE_NAME );
+        remoteConfig.setFetchRefSpecs( Collections.singletonList( new RefSpec( "+" + ref + ":"
+          + Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + Repository.shortenRefName( ref ) ) ) );
+        remoteConfig.update( config );
+        config.save();
+      }
       git.close();
       return true;
     } catch ( Exception e ) {
@@ -779,7 +1574,7 @@ public class UIGit extends VCS implements IVCS {
           && ( ( e.getMessage().contains( "Authentication is required but no CredentialsProvider has been registered" )
             || e.getMessage().contains( "not authorized" ) ) ) ) {
         if ( promptUsernamePassword() ) {
-          return cloneRepo( directory, uri );
+          return cloneRepo( directory, uri, branch, singleBranch );
         }
       } else {
         showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
@@ -793,6 +1588,7 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public void checkout( String name ) {
+    discardStatus();
     try {
       git.checkout().setName( name ).call();
     } catch ( Exception e ) {
@@ -815,26 +1611,59 @@ public class UIGit extends VCS implements IVCS {
    */
   @Override
   public void revertPath( String path ) {
+    revertPaths( Collections.singletonList( path ) );
+  }
+
+  /**
+   * Revert files with a single status scan and a single command per step
+   * @see org.pentaho.di.git.spoon.model.IVCS#revertPaths(java.util.Collection)
+   */
+  @Override
+  public void revertPaths( Collection<String> paths ) {
+    if ( paths.isEmpty() ) {
+      return;
+    }
+    markDirty( paths );
+    markDirty( paths.stream()
+      .flatMap( path -> Stream.of( path + ".ours", path + ".theirs" ) )
+      .collect( Collectors.toList() ) );
     try {
       // Delete added files
-      Status status = git.status().addPath( path ).call();
-      if ( status.getUntracked().size() != 0 || status.getAdded().size() != 0 ) {
-        resetPath( path );
-        org.apache.commons.io.FileUtils.deleteQuietly( new File( directory, path ) );
+      StatusCommand statusCmd = git.status();
+      paths.forEach( statusCmd::addPath );
+      Status status = statusCmd.call();
+      List<String> added = new ArrayList<String>( status.getUntracked() );
+      added.addAll( status.getAdded() );
+      List<String> addedPaths = paths.stream()
+        .filter( path -> {
+          String prefix = path.endsWith( "/" ) ? path : path + "/";
+          return added.stream().anyMatch( name -> name.equals( path ) || name.startsWith( prefix ) );
+        } )
+        .collect( Collectors.toList() );
+      if ( !addedPaths.isEmpty() ) {
+        resetPaths( addedPaths );
+        addedPaths.forEach( path -> org.apache.commons.io.FileUtils.deleteQuietly( new File( directory, path ) ) );
       }
 
       /*
        * This is a work-around to discard changes of conflicting files
        * Git CLI `git checkout -- conflicted.txt` discards the changes, but jgit does not
        */
-      git.add().addFilepattern( path ).call();
-
-      git.checkout().setStartPoint( Constants.HEAD ).addPath( path ).call();
-      org.apache.commons.io.FileUtils.deleteQuietly( new File( directory, path + ".ours" ) );
-      org.apache.commons.io.FileUtils.deleteQuietly( new File( directory, path + ".theirs" ) );
+      AddCommand addCmd = git.add();
+      paths.forEach( addCmd::addFilepattern );
+      addCmd.call();
+
+      CheckoutCommand checkoutCmd = git.checkout().setStartPoint( Constants.HEAD );
+      paths.forEach( checkoutCmd::addPath );
+      checkoutCmd.call();
+      paths.forEach( path -> {
+        org.apache.commons.io.FileUtils.deleteQuietly( new File( directory, path + ".ours" ) );
+        org.apache.commons.io.FileUtils.deleteQuietly( new File( directory, path + ".theirs" ) );
+      } );
     } catch ( Exception e ) {
       showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), e.getMessage() );
     }
+    stampIndex();
   }
 
   /* (non-Javadoc)
@@ -870,6 +1699,7 @@ public class UIGit extends VCS implements IVCS {
   }
 
   private boolean mergeBranch( String value, String mergeStrategy ) {
+    discardStatus();
     try {
       ObjectId obj = git.getRepository().resolve( value );
       MergeResult result = git.merge()
@@ -882,10 +1712,9 @@ public class UIGit extends VCS implements IVCS {
       } else {
         showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), result.getMergeStatus().toString() );
         if ( result.getMergeStatus() == MergeStatus.CONFLICTING ) {
-          result.getConflicts().keySet().forEach( path -> {
-            checkout( path, Constants.HEAD, ".ours" );
-            checkout( path, getExpandedName( value, IVCS.TYPE_BRANCH ), ".theirs" );
-          } );
+          Set<String> paths = result.getConflicts().keySet();
+          checkout( paths, Constants.HEAD, ".ours" );
+          checkout( paths, getExpandedName( value, IVCS.TYPE_BRANCH ), ".theirs" );
           return true;
         }
       }
@@ -915,20 +1744,23 @@ public class UIGit extends VCS implements IVCS {
   }
 
   private boolean hasUncommittedChanges() {
+    // Always re-scan as this guards operations that would overwrite changes
+    discardStatus();
     try {
-      return git.status().call().hasUncommittedChanges();
+      return getStatus().hasUncommittedChanges();
     } catch ( NoWorkTreeException | GitAPIException e ) {
       e.printStackTrace();
       return false;
     }
   }
 
-  private void checkout( String path, String commitId, String postfix ) {
-    InputStream stream = open( path, commitId );
-    File file = new File( directory + Const.FILE_SEPARATOR + path + postfix );
+  private void checkout( Collection<String> paths, String commitId, String postfix ) {
+    markDirty( paths.stream().map( path -> path + postfix ).collect( Collectors.toList() ) );
     try {
-      org.apache.commons.io.FileUtils.copyInputStreamToFile( stream, file );
-      stream.close();
+      open( paths, commitId, ( path, content ) -> {
+        File file = new File( directory + Const.FILE_SEPARATOR + path + postfix );
+        org.apache.commons.io.FileUtils.copyInputStreamToFile( content, file );
+      } );
     } catch ( IOException e ) {
       e.printStackTrace();
     }
@@ -947,7 +1779,7 @@ public class UIGit extends VCS implements IVCS {
     if ( commitId.equals( WORKINGTREE ) ) {
       return new FileTreeIterator( git.getRepository() );
     } else if ( commitId.equals( INDEX ) ) {
-      return new DirCacheIterator( git.getRepository().readDirCache() );
+      return new DirCacheIterator( readDirCache() );
     } else {
       ObjectId id = git.getRepository().resolve( commitId );
       if ( id == null ) { // commitId does not exist
@@ -977,13 +1809,183 @@ public class UIGit extends VCS implements IVCS {
   @Override
   public boolean isClean() {
     try {
-      return git.status().call().isClean();
+      return getStatus().isClean();
     } catch ( Exception e ) {
       e.printStackTrace();
       return false;
     }
   }
 
+  /**
+   * Get the status of the working tree and the index.
+   * It is scanned once and reused until a mutation or {@link #invalidateStatus()}.
+   * @return
+   * @throws GitAPIException
+   */
+  @VisibleForTesting
+  StatusSnapshot getStatus() throws GitAPIException {
+    synchronized ( statusLock ) {
+      if ( status != null && !isStatusStampCurrent() ) {
+        // The index or HEAD has been changed outside of this plugin
+        status = null;
+      }
+      try {
+        if ( status == null ) {
+          dirtyPaths.clear(); // Covered by the full scan
+          if ( watcher != null ) {
+            watcher.drainDirtyPaths();
+          }
+          stampIndex();
+          statusHead = getHeadCommitId();
+          status = scanStatus( null, maxUntrackedFiles );
+        } else if ( !dirtyPaths.isEmpty() || ( watcher != null && watcher.hasChanges() ) ) {
+          Set<String> paths = watcher == null ? new HashSet<String>() : watcher.drainDirtyPaths();
+          if ( paths != null ) {
+            paths.addAll( dirtyPaths );
+          }
+          dirtyPaths.clear();
+          if ( paths == null || paths.size() > MAX_DIRTY_PATHS ) {
+            status = scanStatus( null, maxUntrackedFiles );
+          } else if ( largeRepository && status.countUntracked() >= maxUntrackedFiles ) {
+            // Entries dropped by the limit may have to be listed in place of removed ones
+            status = scanStatus( null, maxUntrackedFiles );
+          } else {
+            // Untracked entries kept from the snapshot count against the limit
+            status = status.merge( paths, scanStatus( paths, maxUntrackedFiles - status.countUntrackedExcept( paths ) ) );
+          }
+        }
+      } catch ( RuntimeException | GitAPIException e ) {
+        // The drained paths are not in the snapshot, so re-scan everything next time
+        status = null;
+        throw e;
+      }
+      return status;
+    }
+  }
+
+  /**
+   * Scan the working tree and the index.
+   * In the large repository mode, skipped directories are not walked,
+   * untracked directories are listed as single entries (e.g., "dir/"),
+   * and untracked entries are listed up to the limit.
+   * @param paths limit the scan to these paths, or null for the whole working tree
+   * @param maxUntracked the maximum number of untracked entries to list in the large repository mode
+   * @return
+   * @throws GitAPIException
+   */
+  @VisibleForTesting
+  StatusSnapshot scanStatus( Collection<String> paths, int maxUntracked ) throws GitAPIException {
+    if ( !largeRepository ) {
+      StatusCommand cmd = git.status();
+      if ( paths != null ) {
+        paths.forEach( cmd::addPath );
+      }
+      return StatusSnapshot.of( cmd.call() );
+    }
+    Repository repository = git.getRepository();
+    LargeRepositoryFilter filter = new LargeRepositoryFilter( skippedDirectories, maxUntracked );
+    try {
+      IndexDiff diff = new IndexDiff( repository, Constants.HEAD, new FileTreeIterator( repository ) );
+      if ( paths == null ) {
+        diff.setFilter( filter );
+      } else {
+        diff.setFilter( AndTreeFilter.create( PathFilterGroup.createFromStrings( paths ), filter ) );
+      }
+      diff.diff();
+      return StatusSnapshot.of( new Status( diff ) ).withUntrackedDirectories( filter.getUntrackedDirectories() );
+    } catch ( IOException e ) {
+      throw new JGitInternalException( e.getMessage(), e );
+    }
+  }
+
+  /**
+   * Resolve HEAD bypassing the cache to detect a commit or checkout outside of this plugin
+   * @return
+   */
+  private String getHeadCommitId() {
+    try {
+      return ObjectId.toString( git.getRepository().resolve( Constants.HEAD ) );
+    } catch ( IOException e ) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  /**
+   * While the watcher is running, the snapshot is kept on refresh
+   * and only the paths it has reported are re-scanned.
+   * It reports a lost event (e.g., an overflow) as requiring a full scan.
+   * Without the watcher, the whole working tree is re-scanned.
+   * @see org.pentaho.di.git.spoon.model.IVCS#invalidateStatus()
+   */
+  @Override
+  public void invalidateStatus() {
+    if ( watcher == null || !watcher.isAlive() ) {
+      discardStatus();
+    }
+    revstrCache.clear();
+  }
+
+  private void discardStatus() {
+    synchronized ( statusLock ) {
+      status = null;
+    }
+    revstrCache.clear();
+  }
+
+  /**
+   * Re-scan only the given paths on the next {@link #getStatus()}.
+   * Call this before changing the index or the working tree under them,
+   * and {@link #stampIndex()} after.
+   * @param paths files or directories relative to the working tree
+   */
+  private void markDirty( Collection<String> paths ) {
+    synchronized ( statusLock ) {
+      if ( status == null ) {
+        return;
+      }
+      if ( !isStatusStampCurrent() || paths.stream().anyMatch( path -> path.isEmpty() || path.equals( "." ) ) ) {
+        discardStatus();
+        return;
+      }
+      dirtyPaths.addAll( paths );
+    }
+  }
+
+  /**
+   * Record the index as written by this plugin so that it does not invalidate the snapshot
+   */
+  private void stampIndex() {
+    File indexFile = git.getRepository().getIndexFile();
+    synchronized ( statusLock ) {
+      statusIndexModified = indexFile.lastModified();
+      statusIndexLength = indexFile.length();
+    }
+  }
+
+  private boolean isStatusStampCurrent() {
+    File indexFile = git.getRepository().getIndexFile();
+    return indexFile.lastModified() == statusIndexModified && indexFile.length() == statusIndexLength
+        && Objects.equals( getHeadCommitId(), statusHead );
+  }
+
+  private void startWatcher() {
+    closeWatcher();
+    try {
+      watcher = new WorkingTreeWatcher( git.getRepository(), skippedDirectories );
+    } catch ( IOException e ) {
+      // Fall back to full scans
+      e.printStackTrace();
+    }
+  }
+
+  private void closeWatcher() {
+    if ( watcher != null ) {
+      watcher.close();
+      watcher = null;
+    }
+  }
+
   @Override
   public List<String> getTags() {
     try {
@@ -1043,22 +2045,24 @@ public class UIGit extends VCS implements IVCS {
     credentialsProvider = new UsernamePasswordCredentialsProvider( username, password );
   }
 
+  /**
+   * Get a parsed commit, which is cached by its id.
+   * Commits are immutable, so only the mapping from a revision string is invalidated (on ref changes).
+   * @param commitId
+   * @return null if it cannot be resolved
+   */
   private RevCommit resolve( String commitId ) {
-    ObjectId id = null;
-    try {
-      id = git.getRepository().resolve( commitId );
-    } catch ( RevisionSyntaxException e1 ) {
-      e1.printStackTrace();
-    } catch ( AmbiguousObjectException e1 ) {
-      e1.printStackTrace();
-    } catch ( IncorrectObjectTypeException e1 ) {
-      e1.printStackTrace();
-    } catch ( IOException e1 ) {
-      e1.printStackTrace();
+    ObjectId id = resolveId( commitId );
+    if ( id == null ) {
+      return null;
+    }
+    RevCommit commit = commitCache.get( id );
+    if ( commit != null ) {
+      return commit;
     }
     try ( RevWalk rw = new RevWalk( git.getRepository() ) ) {
-      RevObject obj = rw.parseAny( id );
-      RevCommit commit = (RevCommit) obj;
+      commit = rw.parseCommit( id );
+      commitCache.put( id.copy(), commit );
       return commit;
     } catch ( MissingObjectException e ) {
       e.printStackTrace();
@@ -1068,6 +2072,60 @@ public class UIGit extends VCS implements IVCS {
     return null;
   }
 
+  private ObjectId resolveId( String revstr ) {
+    ObjectId id = revstrCache.get( revstr );
+    if ( id != null ) {
+      return id;
+    }
+    try {
+      id = git.getRepository().resolve( revstr );
+    } catch ( RevisionSyntaxException e ) {
+      e.printStackTrace();
+    } catch ( AmbiguousObjectException e ) {
+      e.printStackTrace();
+    } catch ( IncorrectObjectTypeException e ) {
+      e.printStackTrace();
+    } catch ( IOException e ) {
+      e.printStackTrace();
+    }
+    if ( id != null ) {
+      revstrCache.put( revstr, id.copy() );
+    }
+    return id;
+  }
+
+  /**
+   * Forget resolved revision strings whenever refs (e.g., HEAD, branches) change
+   */
+  private void watchRefs() {
+    unwatchRefs();
+    revstrCache.clear();
+    commitCache.clear();
+    refsChangedHandle = git.getRepository().getListenerList().addRefsChangedListener( event -> revstrCache.clear() );
+  }
+
+  private void unwatchRefs() {
+    if ( refsChangedHandle != null ) {
+      refsChangedHandle.remove();
+      refsChangedHandle = null;
+    }
+    revstrCache.clear();
+  }
+
+  @VisibleForTesting
+  LruCache<ObjectId, RevCommit> getCommitCache() {
+    return commitCache;
+  }
+
+  @VisibleForTesting
+  RevWalk createRevWalk() {
+    return new RevWalk( git.getRepository() );
+  }
+
+  private String select( List<String> names, String shellText, String message ) {
+    return syncExec( () -> getEnterSelectionDialog( names.toArray( new String[names.size()] ), shellText, message ).open() );
+  }
+
   @VisibleForTesting
   EnterSelectionDialog getEnterSelectionDialog( String[] choices, String shellText, String message ) {
     return new EnterSelectionDialog( shell, choices, shellText, message );
@@ -16,11 +16,18 @@
 
 package org.pentaho.di.git.spoon.model;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import org.eclipse.jface.window.Window;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.MessageBox;
 import org.eclipse.swt.widgets.Shell;
 import org.pentaho.di.git.spoon.GitController;
@@ -35,13 +42,16 @@ public class VCS implements IVCS {
   protected static final Class<?> PKG = GitController.class;
   protected Shell shell;
   protected String directory;
+  private volatile ProgressMonitor progressMonitor;
 
   @VisibleForTesting
   void showMessageBox( String title, String message ) {
-    MessageBox messageBox = new MessageBox( shell, SWT.OK );
-    messageBox.setText( title );
-    messageBox.setMessage( message == null ? "" : message );
-    messageBox.open();
+    syncExec( () -> {
+      MessageBox messageBox = new MessageBox( shell, SWT.OK );
+      messageBox.setText( title );
+      messageBox.setMessage( message == null ? "" : message );
+      return messageBox.open();
+    } );
   }
 
   /**
@@ -49,14 +59,34 @@ public class VCS implements IVCS {
    * @return true on success
    */
   protected boolean promptUsernamePassword() {
-    UsernamePasswordDialog dialog = new UsernamePasswordDialog( shell );
-    if ( dialog.open() == Window.OK ) {
-      String username = dialog.getUsername();
-      String password = dialog.getPassword();
-      setCredential( username, password );
-      return true;
+    return syncExec( () -> {
+      UsernamePasswordDialog dialog = new UsernamePasswordDialog( shell );
+      if ( dialog.open() == Window.OK ) {
+        String username = dialog.getUsername();
+        String password = dialog.getPassword();
+        setCredential( username, password );
+        return true;
+      }
+      return false;
+    } );
+  }
+
+  /**
+   * Run on the UI thread and wait for the result
+   * as network operations may be run on a worker thread (see OperationScheduler)
+   */
+  protected <T> T syncExec( Supplier<T> supplier ) {
+    Display display = shell == null ? null : shell.getDisplay();
+    if ( display == null || display.getThread() == Thread.currentThread() ) {
+      return supplier.get();
     }
-    return false;
+    AtomicReference<T> result = new AtomicReference<T>();
+    display.syncExec( () -> result.set( supplier.get() ) );
+    return result.get();
+  }
+
+  protected ProgressMonitor getProgressMonitor() {
+    return progressMonitor == null ? NullProgressMonitor.INSTANCE : progressMonitor;
   }
 
   @Override
@@ -69,6 +99,10 @@ public class VCS implements IVCS {
     return false;
   }
 
+  @Override
+  public void invalidateStatus() {
+  }
+
   @Override
   public String getAuthorName( String commitId ) {
     return null;
@@ -105,6 +139,11 @@ public class VCS implements IVCS {
     return null;
   }
 
+  @Override
+  public int[] getAheadBehind() {
+    return null;
+  }
+
   @Override
   public List<String> getLocalBranches() {
     // TODO Auto-generated method stub
@@ -152,6 +191,21 @@ public class VCS implements IVCS {
     return null;
   }
 
+  @Override
+  public UIRepositoryObjectRevisions getRevisions( int skip, int limit ) {
+    UIRepositoryObjectRevisions revisions = new UIRepositoryObjectRevisions();
+    UIRepositoryObjectRevisions all = getRevisions();
+    if ( all == null ) {
+      return revisions;
+    }
+    if ( skip == 0 ) {
+      all.stream().filter( rev -> rev.getName().equals( WORKINGTREE ) ).forEach( revisions::add );
+    }
+    all.stream().filter( rev -> !rev.getName().equals( WORKINGTREE ) )
+      .skip( skip ).limit( limit ).forEach( revisions::add );
+    return revisions;
+  }
+
   @Override
   public void setCredential(String username, String password) {
     // TODO Auto-generated method stub
@@ -188,6 +242,10 @@ public class VCS implements IVCS {
     
   }
 
+  @Override
+  public void configure( GitRepository repo ) {
+  }
+
   @Override
   public void openRepo(String baseDirectory) throws Exception {
     // TODO Auto-generated method stub
@@ -204,10 +262,20 @@ public class VCS implements IVCS {
   public void add( String filepattern ) {
   }
 
+  @Override
+  public void add( Collection<String> filepatterns ) {
+    filepatterns.forEach( this::add );
+  }
+
   @Override
   public void rm( String filepattern ) {
   }
 
+  @Override
+  public void rm( Collection<String> filepatterns ) {
+    filepatterns.forEach( this::rm );
+  }
+
   @Override
   public void reset( String name ) {
     showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Not supported (yet)" );
@@ -217,6 +285,11 @@ public class VCS implements IVCS {
   public void resetPath( String path ) {
   }
 
+  @Override
+  public void resetPaths( Collection<String> paths ) {
+    paths.forEach( this::resetPath );
+  }
+
   @Override
   public boolean pull() {
     showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Not supported (yet)" );
@@ -247,11 +320,50 @@ public class VCS implements IVCS {
     return null;
   }
 
+  /**
+   * No budget by default
+   */
+  @Override
+  public String diff( String oldCommitId, String newCommitId, String file, boolean full ) {
+    return diff( oldCommitId, newCommitId, file );
+  }
+
+  /**
+   * Not streamed by default
+   */
+  @Override
+  public void diff( String oldCommitId, String newCommitId, String file, boolean full, Appendable out ) throws IOException {
+    String diff = diff( oldCommitId, newCommitId, file, full );
+    if ( diff != null ) {
+      out.append( diff );
+    }
+  }
+
   @Override
   public InputStream open(String file, String commitId) {
     return null;
   }
 
+  /**
+   * Open one file after another by default
+   */
+  @Override
+  public void open( Collection<String> files, String commitId, ContentConsumer consumer ) throws IOException {
+    for ( String file : files ) {
+      InputStream content = open( file, commitId );
+      if ( content != null ) {
+        try ( InputStream in = content ) {
+          consumer.accept( file, in );
+        }
+      }
+    }
+  }
+
+  @Override
+  public String getContentId( String file, String commitId ) {
+    return null;
+  }
+
   @Override
   public void checkout( String name ) {
     showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Not supported (yet)" );
@@ -263,6 +375,11 @@ public class VCS implements IVCS {
     
   }
 
+  @Override
+  public void revertPaths( Collection<String> paths ) {
+    paths.forEach( this::revertPath );
+  }
+
   @Override
   public boolean createBranch( String value ) {
     showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Not supported (yet)" );
@@ -297,6 +414,11 @@ public class VCS implements IVCS {
     this.shell = shell;
   }
 
+  @Override
+  public void setProgressMonitor( ProgressMonitor monitor ) {
+    this.progressMonitor = monitor;
+  }
+
   @Override
   public boolean merge() {
     showMessageBox( BaseMessages.getString( PKG, "Dialog.Error" ), "Not supported (yet)" );
@@ -308,6 +430,11 @@ public class VCS implements IVCS {
     return false;
   }
 
+  @Override
+  public boolean cloneRepo( String directory, String url, String branch, boolean singleBranch ) {
+    return cloneRepo( directory, url );
+  }
+
   @Override
   public String getType() {
     return null;
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.pentaho.di.core.logging.LogChannelInterface;
+
+/**
+ * Latency histograms, invocation counts and error counts per {@link IVCS} method.
+ * They are recorded by a decorator created by {@link #wrap(IVCS)}, so nothing is recorded
+ * (and nothing is paid) unless the decorator is used.
+ */
+public class VcsMetrics implements VcsMetricsMXBean {
+
+  public static final String OBJECT_NAME = "org.pentaho.di.git:type=VcsMetrics";
+  public static final long DEFAULT_SLOW_THRESHOLD_MILLIS = 1000;
+
+  /**
+   * Upper bounds (inclusive, in milliseconds) of the histogram buckets except the last one
+   */
+  static final long[] BUCKETS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000 };
+
+  private static VcsMetrics instance;
+
+  private final Map<String, OperationStats> operations = new ConcurrentHashMap<String, OperationStats>();
+  private final LogChannelInterface log;
+  private volatile long slowThresholdMillis = DEFAULT_SLOW_THRESHOLD_MILLIS;
+
+  /**
+   * @param log to which slow operations are logged; can be null
+   */
+  public VcsMetrics( LogChannelInterface log ) {
+    this.log = log;
+  }
+
+  /**
+   * Get the metrics shared by all repositories, which are registered to the platform MBean server
+   * @param log
+   * @return
+   */
+  public static synchronized VcsMetrics getInstance( LogChannelInterface log ) {
+    if ( instance == null ) {
+      instance = new VcsMetrics( log );
+      try {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName( OBJECT_NAME );
+        if ( !server.isRegistered( name ) ) {
+          server.registerMBean( instance, name );
+        }
+      } catch ( JMException e ) {
+        log.logError( "Failed to register " + OBJECT_NAME, e );
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Get the shared metrics if they have been created
+   * @return null if the metrics are disabled
+   */
+  public static synchronized VcsMetrics getInstance() {
+    return instance;
+  }
+
+  /**
+   * Decorate an {@link IVCS} so that every call is timed
+   * @param vcs
+   * @return
+   */
+  public IVCS wrap( IVCS vcs ) {
+    return (IVCS) Proxy.newProxyInstance( IVCS.class.getClassLoader(), new Class<?>[] { IVCS.class },
+      ( proxy, method, args ) -> {
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+          return method.invoke( vcs, args );
+        } catch ( InvocationTargetException e ) {
+          failed = true;
+          throw e.getCause();
+        } finally {
+          record( getOperationName( method ), System.nanoTime() - start, failed );
+        }
+      } );
+  }
+
+  /**
+   * @param operation
+   * @param nanos elapsed time
+   * @param failed if an exception has been thrown
+   */
+  public void record( String operation, long nanos, boolean failed ) {
+    operations.computeIfAbsent( operation, key -> new OperationStats() ).record( nanos, failed );
+    long millis = TimeUnit.NANOSECONDS.toMillis( nanos );
+    if ( log != null && millis >= slowThresholdMillis ) {
+      log.logBasic( "Slow Git operation: " + operation + " took " + millis + " ms" );
+    }
+  }
+
+  static String getOperationName( Method method ) {
+    return method.getName() + Arrays.stream( method.getParameterTypes() )
+      .map( Class::getSimpleName )
+      .collect( Collectors.joining( ", ", "(", ")" ) );
+  }
+
+  public Map<String, OperationStats> getOperations() {
+    return new TreeMap<String, OperationStats>( operations );
+  }
+
+  @Override
+  public Map<String, Long> getInvocationCounts() {
+    Map<String, Long> map = new TreeMap<String, Long>();
+    operations.forEach( ( operation, stats ) -> map.put( operation, stats.getCount() ) );
+    return map;
+  }
+
+  @Override
+  public Map<String, Long> getErrorCounts() {
+    Map<String, Long> map = new TreeMap<String, Long>();
+    operations.forEach( ( operation, stats ) -> map.put( operation, stats.getErrors() ) );
+    return map;
+  }
+
+  @Override
+  public Map<String, Double> getMeanMillis() {
+    return collect( OperationStats::getMeanMillis );
+  }
+
+  @Override
+  public Map<String, Double> getMaxMillis() {
+    return collect( OperationStats::getMaxMillis );
+  }
+
+  @Override
+  public Map<String, Double> getP95Millis() {
+    return collect( stats -> stats.getPercentileMillis( 0.95 ) );
+  }
+
+  private Map<String, Double> collect( ToDoubleFunction<OperationStats> value ) {
+    Map<String, Double> map = new TreeMap<String, Double>();
+    operations.forEach( ( operation, stats ) -> map.put( operation, value.applyAsDouble( stats ) ) );
+    return map;
+  }
+
+  @Override
+  public long getSlowThresholdMillis() {
+    return slowThresholdMillis;
+  }
+
+  @Override
+  public void setSlowThresholdMillis( long millis ) {
+    this.slowThresholdMillis = millis;
+  }
+
+  @Override
+  public void reset() {
+    operations.clear();
+  }
+
+  /**
+   * Counters of an operation, which can be updated from multiple threads
+   */
+  public static class OperationStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray( BUCKETS.length + 1 );
+    private volatile long maxNanos;
+
+    void record( long nanos, boolean failed ) {
+      count.increment();
+      if ( failed ) {
+        errors.increment();
+      }
+      totalNanos.add( nanos );
+      if ( nanos > maxNanos ) {
+        maxNanos = nanos; // Racy, but good enough for diagnostics
+      }
+      long millis = TimeUnit.NANOSECONDS.toMillis( nanos );
+      int bucket = 0;
+      while ( bucket < BUCKETS.length && millis > BUCKETS[bucket] ) {
+        bucket++;
+      }
+      histogram.incrementAndGet( bucket );
+    }
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public long getErrors() {
+      return errors.sum();
+    }
+
+    public double getMeanMillis() {
+      long n = count.sum();
+      return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    public double getMaxMillis() {
+      return maxNanos / 1e6;
+    }
+
+    /**
+     * Estimate a percentile by the upper bound of the bucket it falls in
+     * @param fraction e.g., 0.95
+     * @return the max if it falls in the last, unbounded bucket
+     */
+    public double getPercentileMillis( double fraction ) {
+      long n = 0;
+      for ( int i = 0; i < histogram.length(); i++ ) {
+        n += histogram.get( i );
+      }
+      long cumulative = 0;
+      for ( int i = 0; i < BUCKETS.length; i++ ) {
+        cumulative += histogram.get( i );
+        if ( n > 0 && cumulative >= Math.ceil( fraction * n ) ) {
+          return Math.min( BUCKETS[i], getMaxMillis() );
+        }
+      }
+      return getMaxMillis();
+    }
+  }
+}
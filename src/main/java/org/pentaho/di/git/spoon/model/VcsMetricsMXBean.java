@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import java.util.Map;
+
+/**
+ * Timing metrics of {@link IVCS} operations exposed via JMX.
+ * Maps are keyed by operation, e.g., <tt>getRevisions(int, int)</tt>.
+ */
+public interface VcsMetricsMXBean {
+
+  Map<String, Long> getInvocationCounts();
+
+  Map<String, Long> getErrorCounts();
+
+  Map<String, Double> getMeanMillis();
+
+  Map<String, Double> getMaxMillis();
+
+  /**
+   * Estimated from the latency histogram
+   * @return
+   */
+  Map<String, Double> getP95Millis();
+
+  long getSlowThresholdMillis();
+
+  void setSlowThresholdMillis( long millis );
+
+  void reset();
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Watch a working tree in the background and record the paths that have changed
+ * so that the status can be updated only for them.
+ * The .git directory and ignored directories are not watched. Lost events require a full scan,
+ * which is reported by {@link #drainDirtyPaths()}.
+ */
+public class WorkingTreeWatcher implements Closeable {
+
+  private final Repository repository;
+  private final Path root;
+  private final List<String> skippedDirectories;
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> keys = new ConcurrentHashMap<WatchKey, Path>();
+  private Set<String> dirtyPaths = new HashSet<String>();
+  private boolean fullScanRequired = false;
+  private volatile boolean alive = true;
+
+  public WorkingTreeWatcher( Repository repository ) throws IOException {
+    this( repository, Collections.<String>emptyList() );
+  }
+
+  /**
+   * @param repository
+   * @param skippedDirectories directories not to be watched, see {@link GitRepository#getSkippedDirectories()}
+   * @throws IOException
+   */
+  public WorkingTreeWatcher( Repository repository, List<String> skippedDirectories ) throws IOException {
+    this.repository = repository;
+    this.root = repository.getWorkTree().toPath().toAbsolutePath().normalize();
+    this.skippedDirectories = skippedDirectories;
+    watchService = FileSystems.getDefault().newWatchService();
+    try {
+      registerAll( root );
+    } catch ( IOException e ) {
+      // e.g., the limit of watches has been reached
+      watchService.close();
+      throw e;
+    }
+    Thread thread = new Thread( this::processEvents, "Git working tree watcher: " + root );
+    thread.setDaemon( true );
+    thread.start();
+  }
+
+  /**
+   * Take the paths that have changed since the last call.
+   * @return paths relative to the working tree, or null if a full scan is required
+   */
+  public synchronized Set<String> drainDirtyPaths() {
+    if ( fullScanRequired || !alive ) {
+      fullScanRequired = false;
+      dirtyPaths = new HashSet<String>();
+      return null;
+    }
+    Set<String> paths = dirtyPaths;
+    dirtyPaths = new HashSet<String>();
+    return paths;
+  }
+
+  public synchronized boolean hasChanges() {
+    return fullScanRequired || !dirtyPaths.isEmpty();
+  }
+
+  public boolean isAlive() {
+    return alive;
+  }
+
+  @VisibleForTesting
+  Collection<Path> getWatchedDirectories() {
+    return keys.values();
+  }
+
+  @Override
+  public void close() {
+    alive = false;
+    try {
+      watchService.close();
+    } catch ( IOException e ) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Register the directory and its subdirectories except ignored and skipped ones.
+   * The ignore rules are evaluated by JGit's working tree iterator,
+   * so they are the same as those of the status scan.
+   * @param start
+   * @throws IOException
+   */
+  private void registerAll( Path start ) throws IOException {
+    String prefix = root.relativize( start ).toString().replace( File.separatorChar, '/' );
+    if ( prefix.isEmpty() ) {
+      register( root );
+    }
+    try ( TreeWalk walk = new TreeWalk( repository ) ) {
+      walk.addTree( new FileTreeIterator( repository ) );
+      if ( !prefix.isEmpty() ) {
+        // Also walks the parents of the prefix, whose ignore rules apply to it
+        walk.setFilter( PathFilter.create( prefix ) );
+      }
+      while ( walk.next() ) {
+        if ( !walk.isSubtree() ) {
+          continue;
+        }
+        String path = walk.getPathString();
+        if ( walk.getTree( 0, WorkingTreeIterator.class ).isEntryIgnored()
+            || LargeRepositoryFilter.isSkipped( skippedDirectories, path ) ) {
+          continue;
+        }
+        if ( prefix.isEmpty() || path.equals( prefix ) || path.startsWith( prefix + "/" ) ) {
+          register( root.resolve( path ) );
+        }
+        walk.enterSubtree();
+      }
+    }
+  }
+
+  private void register( Path dir ) throws IOException {
+    keys.put( dir.register( watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY ), dir );
+  }
+
+  private void processEvents() {
+    while ( alive ) {
+      WatchKey key;
+      try {
+        key = watchService.take();
+      } catch ( InterruptedException | ClosedWatchServiceException e ) {
+        break;
+      }
+      Path dir = keys.get( key );
+      if ( dir != null ) {
+        for ( WatchEvent<?> event : key.pollEvents() ) {
+          if ( event.kind() == OVERFLOW ) {
+            requireFullScan();
+            continue;
+          }
+          Path path = dir.resolve( (Path) event.context() );
+          if ( event.kind() == ENTRY_CREATE && Files.isDirectory( path ) ) {
+            try {
+              registerAll( path );
+            } catch ( IOException e ) {
+              requireFullScan();
+            }
+          }
+          String relativePath = root.relativize( path ).toString().replace( File.separatorChar, '/' );
+          if ( !relativePath.equals( Constants.DOT_GIT ) ) {
+            addDirtyPath( relativePath );
+          }
+        }
+      }
+      if ( !key.reset() ) {
+        keys.remove( key );
+        if ( root.equals( dir ) ) {
+          break;
+        }
+      }
+    }
+    alive = false;
+  }
+
+  private synchronized void addDirtyPath( String path ) {
+    dirtyPaths.add( path );
+  }
+
+  private synchronized void requireFullScan() {
+    fullScanRequired = true;
+  }
+}
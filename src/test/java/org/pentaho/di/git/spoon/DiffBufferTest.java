@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class DiffBufferTest {
+
+  @Test
+  public void testLines() {
+    DiffBuffer buffer = new DiffBuffer( "@@ -1 +1 @@\r\n-old\r\n+new\r\n" );
+    assertEquals( 4, buffer.getLineCount() );
+    assertEquals( "@@ -1 +1 @@", buffer.getLine( 0 ) );
+    assertEquals( "-old", buffer.getLine( 1 ) );
+    assertEquals( "+new", buffer.getLine( 2 ) );
+    assertEquals( "", buffer.getLine( 3 ) );
+    assertEquals( 12, buffer.getLineStart( 1 ) );
+    assertEquals( 0, buffer.getLineAtOffset( 11 ) );
+    assertEquals( 1, buffer.getLineAtOffset( 12 ) );
+    assertEquals( 3, buffer.getLineAtOffset( buffer.length() ) );
+    assertEquals( "old\n+", buffer.substring( 13, 18 ) );
+
+    assertEquals( 1, new DiffBuffer().getLineCount() );
+    assertEquals( "", new DiffBuffer().getLine( 0 ) );
+  }
+
+  @Test
+  public void testAcrossChunks() {
+    StringBuilder sb = new StringBuilder();
+    while ( sb.length() < DiffBuffer.CHUNK_SIZE * 3 ) {
+      sb.append( "+line " ).append( sb.length() ).append( '\n' );
+    }
+    String text = sb.toString();
+    DiffBuffer buffer = new DiffBuffer();
+    buffer.append( text.substring( 0, 100 ) );
+    buffer.append( text.charAt( 100 ) );
+    buffer.append( text, 101, text.length() );
+    assertEquals( text.length(), buffer.length() );
+    assertEquals( text, buffer.substring( 0, buffer.length() ) );
+    String[] lines = text.split( "\n" );
+    assertEquals( lines.length + 1, buffer.getLineCount() );
+    for ( int i = 0; i < lines.length; i++ ) {
+      assertEquals( lines[i], buffer.getLine( i ) );
+      assertEquals( i, buffer.getLineAtOffset( buffer.getLineStart( i ) + 1 ) );
+    }
+  }
+}
@@ -21,9 +21,11 @@ import static org.mockito.Mockito.*;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import org.eclipse.jgit.transport.PushResult;
 import org.eclipse.jgit.transport.RemoteRefUpdate;
@@ -41,6 +43,7 @@ import org.pentaho.di.git.spoon.model.UIGit;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.repository.pur.PurObjectRevision;
 import org.pentaho.di.ui.repository.pur.repositoryexplorer.model.UIRepositoryObjectRevision;
+import org.pentaho.di.ui.repository.pur.repositoryexplorer.model.UIRepositoryObjectRevisions;
 import org.pentaho.di.ui.repository.repositoryexplorer.RepositoryExplorer;
 import org.pentaho.ui.xul.XulDomContainer;
 import org.pentaho.ui.xul.components.XulConfirmBox;
@@ -195,6 +198,57 @@ public class GitControllerTest {
     verify( uiGit, never() ).addRemote( anyString() );
   }
 
+  @Test
+  public void testRevisionMaterialized() throws Exception {
+    doReturn( createRevisions( 0 ) ).when( uiGit ).getRevisions( 0, GitController.REVISION_PAGE_SIZE );
+    controller.getRevisions();
+    List<Runnable> later = new ArrayList<Runnable>();
+    doAnswer( invocation -> later.add( (Runnable) invocation.getArguments()[0] ) ).when( controller ).asyncExec( any( Runnable.class ) );
+    doAnswer( invocation -> controller.getRevisions().addAll( createRevisions( GitController.REVISION_PAGE_SIZE ) ) )
+      .when( controller ).loadMoreRevisions();
+
+    // Far from the bottom
+    controller.revisionMaterialized( 0 );
+    assertTrue( later.isEmpty() );
+
+    // Close to the bottom, twice before the next page is loaded
+    controller.revisionMaterialized( GitController.REVISION_PAGE_SIZE - 1 );
+    controller.revisionMaterialized( GitController.REVISION_PAGE_SIZE - 2 );
+    assertEquals( 2, later.size() );
+    verify( controller, never() ).loadMoreRevisions();
+    later.forEach( Runnable::run );
+    verify( controller, times( 1 ) ).loadMoreRevisions();
+    assertEquals( 2 * GitController.REVISION_PAGE_SIZE, controller.getRevisions().size() );
+  }
+
+  private static UIRepositoryObjectRevisions createRevisions( int start ) {
+    UIRepositoryObjectRevisions revisions = new UIRepositoryObjectRevisions();
+    for ( int i = start; i < start + GitController.REVISION_PAGE_SIZE; i++ ) {
+      revisions.add( new UIRepositoryObjectRevision( new PurObjectRevision( String.valueOf( i ), "test", new Date(), "" ) ) );
+    }
+    return revisions;
+  }
+
+  @Test
+  public void testChangedFileChecked() throws Exception {
+    doNothing().when( controller ).refreshChangedFiles();
+    doReturn( true ).when( controller ).isOnlyWIP();
+
+    controller.changedFileChecked( new UIFile( "a.ktr", ChangeType.MODIFY, false ) );
+    verify( uiGit ).add( "a.ktr" );
+    controller.changedFileChecked( new UIFile( "b.ktr", ChangeType.DELETE, false ) );
+    verify( uiGit ).rm( "b.ktr" );
+    controller.changedFileChecked( new UIFile( "c.ktr", ChangeType.MODIFY, true ) );
+    verify( uiGit ).resetPath( "c.ktr" );
+    verify( controller, times( 3 ) ).refreshChangedFiles();
+
+    // Files of a commit cannot be staged, so the checkbox is just reverted
+    doReturn( false ).when( controller ).isOnlyWIP();
+    controller.changedFileChecked( new UIFile( "d.ktr", ChangeType.MODIFY, false ) );
+    verify( uiGit, never() ).add( "d.ktr" );
+    verify( controller, times( 4 ) ).refreshChangedFiles();
+  }
+
   @Test
   public void testCheckout() throws Exception {
     PurObjectRevision rev = new PurObjectRevision( "000", "test", new Date(), "hoge" );
@@ -262,6 +316,23 @@ public class GitControllerTest {
     verify( controller, times( 2 ) ).loadMainPerspective();
   }
 
+  @Test
+  public void testLoadMetaCache() throws Exception {
+    doReturn( "blob" ).when( uiGit ).getContentId( "test.ktr", "XXX" );
+    doReturn( new FileInputStream( new File( "src/test/resources/r1.ktr" ) ) ).when( uiGit ).open( "test.ktr", "XXX" );
+    EngineMetaInterface meta = controller.loadMeta( "test.ktr", "XXX", true );
+    EngineMetaInterface meta2 = controller.loadMeta( "test.ktr", "XXX", true );
+    verify( uiGit ).open( "test.ktr", "XXX" );
+    assertNotSame( meta, meta2 );
+    assertEquals( meta.getName(), meta2.getName() );
+
+    // Modifying a returned meta does not affect the cached one
+    meta.setName( "modified" );
+    assertNotEquals( "modified", controller.loadMeta( "test.ktr", "XXX", true ).getName() );
+    assertEquals( 2, controller.getMetaCache().getHits() );
+    assertEquals( 1, controller.getMetaCache().getMisses() );
+  }
+
   private static class XulConfirmBoxMock extends MessageDialogBase implements XulConfirmBox {
     private final XulDialogCallback.Status status;
 
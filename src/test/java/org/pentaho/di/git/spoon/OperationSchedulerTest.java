@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.pentaho.di.git.spoon.model.IVCS;
+
+public class OperationSchedulerTest {
+
+  private ExecutorService executor;
+  private final BlockingQueue<Runnable> uiQueue = new LinkedBlockingQueue<Runnable>();
+  private IVCS vcs;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool( 2 );
+    vcs = mock( IVCS.class );
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testInline() {
+    OperationScheduler scheduler = spy( new OperationScheduler() );
+    List<String> results = new ArrayList<String>();
+    scheduler.schedule( "repo", "Pull", vcs, v -> "pulled", results::add );
+    scheduler.scheduleInBackground( "repo", vcs, v -> "counted", results::add );
+    assertEquals( Arrays.asList( "pulled", "counted" ), results );
+    verify( scheduler, never() ).openProgress( anyString() );
+    verify( vcs, never() ).setProgressMonitor( any( ProgressMonitor.class ) );
+  }
+
+  @Test
+  public void testSerializedPerRepository() throws Exception {
+    OperationScheduler scheduler = new OperationScheduler( null, executor, uiQueue::add );
+    List<String> events = Collections.synchronizedList( new ArrayList<String>() );
+    CountDownLatch release = new CountDownLatch( 1 );
+    scheduler.scheduleInBackground( "repo", vcs, v -> {
+      events.add( "first" );
+      await( release );
+      throw new IllegalStateException( "first failed" );
+    }, result -> events.add( "first callback" ) );
+    scheduler.scheduleInBackground( "repo", vcs, v -> events.add( "second" ), result -> events.add( "second callback" ) );
+
+    // Another repository is not blocked
+    CountDownLatch other = new CountDownLatch( 1 );
+    scheduler.scheduleInBackground( "other", vcs, v -> {
+      other.countDown();
+      return true;
+    }, result -> { } );
+    assertTrue( other.await( 10, TimeUnit.SECONDS ) );
+    runOnUiThread();
+    assertFalse( events.contains( "second" ) );
+
+    // The second one runs after the first one, even if it has failed
+    release.countDown();
+    runOnUiThread();
+    runOnUiThread();
+    assertEquals( Arrays.asList( "first", "second", "second callback" ), events );
+  }
+
+  @Test
+  public void testProgressMonitor() throws Exception {
+    OperationScheduler scheduler = spy( new OperationScheduler( null, executor, uiQueue::add ) );
+    OperationScheduler.Progress progress = mock( OperationScheduler.Progress.class );
+    ProgressMonitor monitor = mock( ProgressMonitor.class );
+    when( progress.getMonitor() ).thenReturn( monitor );
+    doReturn( progress ).when( scheduler ).openProgress( "Pull" );
+
+    List<Boolean> results = new ArrayList<Boolean>();
+    scheduler.schedule( "repo", "Pull", vcs, v -> {
+      // The operation sees the monitor cancelled by the dialog
+      verify( v ).setProgressMonitor( monitor );
+      return true;
+    }, results::add );
+    runOnUiThread();
+    assertEquals( Arrays.asList( true ), results );
+    InOrder inOrder = inOrder( vcs, progress );
+    inOrder.verify( vcs ).setProgressMonitor( monitor );
+    inOrder.verify( vcs ).setProgressMonitor( null );
+    inOrder.verify( progress ).close();
+  }
+
+  private void runOnUiThread() throws InterruptedException {
+    Runnable runnable = uiQueue.poll( 10, TimeUnit.SECONDS );
+    assertNotNull( runnable );
+    runnable.run();
+  }
+
+  private static void await( CountDownLatch latch ) {
+    try {
+      latch.await();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -22,6 +22,8 @@ import static org.pentaho.di.git.spoon.PdiDiff.*;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -57,6 +59,34 @@ public class PdiDiffTest {
     assertEquals( CHANGED, transMeta.getStep( 1 ).getAttribute( ATTR_GIT, ATTR_STATUS ) );
     assertEquals( REMOVED, transMeta.getStep( 2 ).getAttribute( ATTR_GIT, ATTR_STATUS ) );
     assertEquals( ADDED, transMeta2.getStep( 2 ).getAttribute( ATTR_GIT, ATTR_STATUS ) );
+
+    // Fingerprints are not kept with the steps, which would be saved with the file
+    assertNull( transMeta.getStep( 0 ).getAttribute( ATTR_GIT, "Fingerprint" ) );
+    Map<Object, String> fingerprints = new IdentityHashMap<Object, String>();
+    String fingerprint = getFingerprint( transMeta.getStep( 0 ), transMeta.getStep( 0 )::getXML, fingerprints );
+    assertEquals( fingerprint, getFingerprint( transMeta2.getStep( 0 ), transMeta2.getStep( 0 )::getXML, fingerprints ) );
+    assertNotEquals( fingerprint, getFingerprint( transMeta.getStep( 1 ), transMeta.getStep( 1 )::getXML, fingerprints ) );
+    assertEquals( 3, fingerprints.size() );
+
+    // The status does not affect the fingerprint, and is left as is
+    transMeta.getStep( 0 ).setAttribute( ATTR_GIT, ATTR_STATUS, CHANGED );
+    assertEquals( fingerprint, getFingerprint( transMeta.getStep( 0 ), transMeta.getStep( 0 )::getXML, new IdentityHashMap<Object, String>() ) );
+    assertEquals( CHANGED, transMeta.getStep( 0 ).getAttribute( ATTR_GIT, ATTR_STATUS ) );
+
+    // An edit is detected even if the step had been compared before
+    transMeta.getStep( 0 ).setDescription( "Edited" );
+    transMeta = compareSteps( transMeta, transMeta2, true );
+    assertEquals( CHANGED, transMeta.getStep( 0 ).getAttribute( ATTR_GIT, ATTR_STATUS ) );
+  }
+
+  @Test
+  public void excludeGitAttributesTest() throws Exception {
+    String git = "<group><name>Git</name><attribute><key>Status</key><value>CHANGED</value></attribute></group>";
+    String other = "<group><name>Other</name><attribute><key>Git</key><value>&lt;/group&gt;</value></attribute></group>";
+    assertEquals( "<step><name>A</name></step>", excludeGitAttributes( "<step><name>A</name><attributes>" + git + "</attributes></step>" ) );
+    assertEquals( "<step><attributes>" + other + "</attributes></step>",
+      excludeGitAttributes( "<step><attributes>" + git + other + "</attributes></step>" ) );
+    assertEquals( "<step><attributes>" + other + "</attributes></step>", excludeGitAttributes( "<step><attributes>" + other + "</attributes></step>" ) );
   }
 
   @Test
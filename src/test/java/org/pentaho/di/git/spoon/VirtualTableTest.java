@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableItem;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.git.spoon.model.UIFile;
+import org.pentaho.ui.xul.components.XulTreeCol;
+
+public class VirtualTableTest {
+
+  private Table table;
+  private final Map<Integer, Listener> listeners = new HashMap<Integer, Listener>();
+  private VirtualTable<UIFile> virtualTable;
+  private List<UIFile> files;
+
+  @Before
+  public void setUp() {
+    table = mock( Table.class );
+    doAnswer( invocation -> {
+      listeners.put( (Integer) invocation.getArguments()[0], (Listener) invocation.getArguments()[1] );
+      return null;
+    } ).when( table ).addListener( anyInt(), any( Listener.class ) );
+    XulTreeCol checkboxCol = mock( XulTreeCol.class );
+    when( checkboxCol.getType() ).thenReturn( "checkbox" );
+    when( checkboxCol.getBinding() ).thenReturn( "isStaged" );
+    XulTreeCol nameCol = mock( XulTreeCol.class );
+    when( nameCol.getBinding() ).thenReturn( "name" );
+    virtualTable = new VirtualTable<UIFile>( table, Arrays.asList( checkboxCol, nameCol ) );
+
+    files = new ArrayList<UIFile>();
+    files.add( new UIFile( "a.ktr", ChangeType.ADD, true ) );
+    files.add( new UIFile( "b.kjb", ChangeType.MODIFY, false ) );
+    virtualTable.setElements( files );
+    verify( table ).setItemCount( 2 );
+  }
+
+  @Test
+  public void testSetData() {
+    List<Integer> materialized = new ArrayList<Integer>();
+    virtualTable.setDataListener( materialized::add );
+
+    TableItem item = mock( TableItem.class );
+    listeners.get( SWT.SetData ).handleEvent( createEvent( item, 1, SWT.NONE ) );
+    verify( item ).setChecked( false );
+    verify( item ).setText( 1, "b.kjb" );
+    assertEquals( Arrays.asList( 1 ), materialized );
+
+    // Out of range, e.g., after the elements have been replaced
+    listeners.get( SWT.SetData ).handleEvent( createEvent( mock( TableItem.class ), 2, SWT.NONE ) );
+    assertEquals( Arrays.asList( 1 ), materialized );
+
+    // Appended elements are shown without clearing the rows
+    files.add( new UIFile( "c.ktr", ChangeType.DELETE, false ) );
+    virtualTable.elementsAdded();
+    verify( table ).setItemCount( 3 );
+    verify( table, times( 1 ) ).clearAll();
+    listeners.get( SWT.SetData ).handleEvent( createEvent( item, 2, SWT.NONE ) );
+    verify( item ).setText( 1, "c.ktr" );
+    assertEquals( Arrays.asList( 1, 2 ), materialized );
+  }
+
+  @Test
+  public void testSelection() {
+    List<List<UIFile>> selections = new ArrayList<List<UIFile>>();
+    virtualTable.setSelectionListener( selections::add );
+    when( table.getSelectionIndices() ).thenReturn( new int[] { 0, 1 } );
+
+    listeners.get( SWT.Selection ).handleEvent( createEvent( mock( TableItem.class ), 0, SWT.NONE ) );
+    assertEquals( 1, selections.size() );
+    assertEquals( files, selections.get( 0 ) );
+    assertEquals( files, virtualTable.getSelectedElements() );
+  }
+
+  @Test
+  public void testCheck() {
+    List<List<UIFile>> selections = new ArrayList<List<UIFile>>();
+    virtualTable.setSelectionListener( selections::add );
+    List<UIFile> checked = new ArrayList<UIFile>();
+    virtualTable.setCheckListener( checked::add );
+    TableItem item = mock( TableItem.class );
+    when( table.indexOf( item ) ).thenReturn( 1 );
+
+    listeners.get( SWT.Selection ).handleEvent( createEvent( item, 0, SWT.CHECK ) );
+    assertEquals( Arrays.asList( files.get( 1 ) ), checked );
+    // Checking a box does not change the selection
+    assertTrue( selections.isEmpty() );
+
+    // An item no longer in the table
+    when( table.indexOf( item ) ).thenReturn( -1 );
+    listeners.get( SWT.Selection ).handleEvent( createEvent( item, 0, SWT.CHECK ) );
+    assertEquals( 1, checked.size() );
+  }
+
+  private static Event createEvent( TableItem item, int index, int detail ) {
+    Event event = new Event();
+    event.item = item;
+    event.index = index;
+    event.detail = detail;
+    return event;
+  }
+}
@@ -16,6 +16,8 @@
 
 package org.pentaho.di.git.spoon.model;
 
+import java.util.Arrays;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -31,6 +33,7 @@ import org.pentaho.metastore.persist.MetaStoreFactory;
 import org.pentaho.metastore.stores.memory.MemoryMetaStore;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 @RunWith( MockitoJUnitRunner.class )
@@ -54,6 +57,11 @@ public class GitRepositoryTest {
     repo.setName( NAME );
     repo.setDescription( DESCRIPTION );
     repo.setDirectory( DIRECTORY );
+    repo.setLargeRepository( true );
+    repo.setMaxUntrackedFiles( 100 );
+    repo.setSkippedDirectories( "node_modules, /data/archive/" );
+    repo.setRenameLimit( 1000 );
+    repo.setRenameScore( 80 );
   }
 
   @Test
@@ -65,6 +73,11 @@ public class GitRepositoryTest {
     assertEquals( NAME, verify.getName() );
     assertEquals( DESCRIPTION, verify.getDescription() );
     assertEquals( DIRECTORY, verify.getDirectory() );
+    assertTrue( verify.isLargeRepository() );
+    assertEquals( 100, verify.getMaxUntrackedFiles() );
+    assertEquals( Arrays.asList( "node_modules", "data/archive" ), verify.getSkippedDirectoryList() );
+    assertEquals( 1000, verify.getRenameLimit() );
+    assertEquals( 80, verify.getRenameScore() );
   }
 
   @Test
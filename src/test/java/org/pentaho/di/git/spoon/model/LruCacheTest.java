@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LruCacheTest {
+
+  @Test
+  public void testEviction() {
+    LruCache<String, String> cache = new LruCache<String, String>( 2 );
+    cache.put( "a", "A" );
+    cache.put( "b", "B" );
+    assertEquals( "A", cache.get( "a" ) ); // "b" becomes the least recently used
+    cache.put( "c", "C" );
+    assertEquals( 2, cache.size() );
+    assertNull( cache.get( "b" ) );
+    assertEquals( "A", cache.get( "a" ) );
+    assertEquals( "C", cache.get( "c" ) );
+    assertEquals( 3, cache.getHits() );
+    assertEquals( 1, cache.getMisses() );
+  }
+
+  @Test
+  public void testWeight() {
+    LruCache<String, String> cache = new LruCache<String, String>( 10L, String::length );
+    cache.put( "a", "12345" );
+    cache.put( "b", "12345" );
+    cache.put( "c", "123" );
+    assertNull( cache.get( "a" ) );
+    assertEquals( 8, cache.getWeight() );
+
+    // Too heavy to be cached
+    cache.put( "d", "12345678901" );
+    assertNull( cache.get( "d" ) );
+    assertEquals( "12345", cache.get( "b" ) );
+  }
+}
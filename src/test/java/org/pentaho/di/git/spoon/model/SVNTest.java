@@ -41,6 +41,7 @@ public class SVNTest {
   private ISVNRepos admin;
   private File rootServer;
   private File rootClient;
+  private File logCacheDirectory;
   private String diff;
 
   @Before
@@ -54,7 +55,12 @@ public class SVNTest {
 
     rootClient = File.createTempFile( "svn_test_", "_client" );
     rootClient.delete();
+    // Keep the log cache out of the Kettle home
+    logCacheDirectory = File.createTempFile( "svn_test_", "_log" );
+    logCacheDirectory.delete();
+
     vcs = spy( new SVN() );
+    ( (SVN) vcs ).setLogCacheDirectory( logCacheDirectory );
     doNothing().when( vcs ).showMessageBox( anyString(), anyString() );
     vcs.cloneRepo( rootClient.getPath(), "file://" + rootServer.getPath() );
     vcs.openRepo( rootClient.getPath() );
@@ -65,6 +71,7 @@ public class SVNTest {
     admin.dispose();
     FileUtils.deleteDirectory( rootServer );
     FileUtils.deleteDirectory( rootClient );
+    FileUtils.deleteDirectory( logCacheDirectory );
   }
 
   @Test
@@ -174,6 +181,21 @@ public class SVNTest {
     assertTrue( files.stream().anyMatch( f -> f.getName().equals( "test.txt" ) && f.getChangeType() == ChangeType.DELETE ) );
   }
 
+  @Test
+  public void testStatusSnapshot() throws Exception {
+    File file = new File( rootClient.getPath(), "test.txt" );
+    FileUtils.write( file, "Hello World" );
+    assertFalse( vcs.isClean() );
+    assertEquals( 1, vcs.getUnstagedFiles().size() );
+    assertTrue( vcs.getStagedFiles().isEmpty() );
+
+    // A change outside of the plugin is reflected after invalidation (i.e., refresh)
+    file.delete();
+    assertEquals( 1, vcs.getUnstagedFiles().size() );
+    vcs.invalidateStatus();
+    assertTrue( vcs.isClean() );
+  }
+
   @Test
   public void testCreateDeleteBranchTag() throws Exception {
     vcs.createBranch( "trunk" );
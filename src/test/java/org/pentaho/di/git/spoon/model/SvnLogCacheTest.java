@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.repository.pur.PurObjectRevision;
+
+public class SvnLogCacheTest {
+  private File dir;
+  private File file;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = File.createTempFile( "svn_test_", "_log" );
+    dir.delete();
+    file = new File( dir, "log" );
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory( dir );
+  }
+
+  @Test
+  public void testPersist() throws Exception {
+    SvnLogCache cache = new SvnLogCache( file, "uuid" );
+    assertEquals( 0, cache.getLastRevision() );
+    cache.add( 3, Arrays.asList(
+        new PurObjectRevision( "1", "user", new Date( 1000 ), "first" ),
+        new PurObjectRevision( "3", "user", new Date( 3000 ), null ) ) );
+    cache.add( 5, Arrays.asList( new PurObjectRevision( "5", null, null, "fifth" ) ) );
+
+    // Reload from the disk
+    cache = new SvnLogCache( file, "uuid" );
+    assertEquals( 5, cache.getLastRevision() );
+    assertEquals( "first", cache.get( 1 ).getComment() );
+    assertEquals( new Date( 1000 ), cache.get( 1 ).getCreationDate() );
+    assertNull( cache.get( 2 ) );
+    assertNull( cache.get( 3 ).getComment() );
+    assertNull( cache.get( 5 ).getLogin() );
+
+    // From the newest to the oldest up to a given revision
+    List<PurObjectRevision> revisions = cache.getRevisions( 4 );
+    assertEquals( 2, revisions.size() );
+    assertEquals( "3", revisions.get( 0 ).getName() );
+    assertEquals( "1", revisions.get( 1 ).getName() );
+
+    // The log of another repository is discarded
+    cache = new SvnLogCache( file, "another" );
+    assertEquals( 0, cache.getLastRevision() );
+    assertNull( cache.get( 1 ) );
+  }
+}
@@ -20,25 +20,47 @@ import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.RemoteAddCommand;
+import org.eclipse.jgit.api.errors.JGitInternalException;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.dircache.DirCache;
 import org.eclipse.jgit.api.PullResult;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.junit.RepositoryTestCase;
+import org.eclipse.jgit.lib.BranchTrackingStatus;
+import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.transport.RemoteConfig;
 import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -131,6 +153,215 @@ public class UIGitTest extends RepositoryTestCase {
     assertEquals( 1, revisions.size() );
   }
 
+  @Test
+  public void testCommitCache() throws Exception {
+    initialCommit();
+    RevCommit commit = git.commit().setMessage( "second" ).call();
+    String commitId = commit.getName();
+
+    assertEquals( "second", uiGit.getCommitMessage( commitId ) );
+    uiGit.getAuthorName( commitId );
+    uiGit.getParentCommitId( commitId );
+    // Parsed once and reused
+    assertEquals( 1, uiGit.getCommitCache().getMisses() );
+    assertEquals( commit.getParent( 0 ).getName(), uiGit.getParentCommitId( commitId ) );
+
+    // HEAD is resolved again after it moves
+    assertEquals( commitId, uiGit.getCommitId( Constants.HEAD ) );
+    RevCommit third = git.commit().setMessage( "third" ).call();
+    assertEquals( third.getName(), uiGit.getCommitId( Constants.HEAD ) );
+    assertEquals( "third", uiGit.getCommitMessage( Constants.HEAD ) );
+  }
+
+  @Test
+  public void testGetAheadBehind() throws Exception {
+    initialCommit();
+    assertNull( uiGit.getAheadBehind() ); // No upstream
+    setupRemote();
+    StoredConfig config = db.getConfig();
+    config.setString( ConfigConstants.CONFIG_BRANCH_SECTION, Constants.MASTER, ConfigConstants.CONFIG_KEY_REMOTE, Constants.DEFAULT_REMOTE_NAME );
+    config.setString( ConfigConstants.CONFIG_BRANCH_SECTION, Constants.MASTER, ConfigConstants.CONFIG_KEY_MERGE, Constants.R_HEADS + Constants.MASTER );
+    config.save();
+
+    RevCommit second = git.commit().setMessage( "second" ).call();
+    git.commit().setMessage( "third" ).call();
+    String upstream = Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + Constants.MASTER;
+    RefUpdate ru = db.updateRef( upstream );
+    ru.setNewObjectId( second );
+    ru.forceUpdate();
+    assertArrayEquals( new int[] { 1, 0 }, uiGit.getAheadBehind() );
+
+    // Diverge
+    git.checkout().setCreateBranch( true ).setName( "other" ).setStartPoint( second ).call();
+    git.commit().setMessage( "other 1" ).call();
+    RevCommit other = git.commit().setMessage( "other 2" ).call();
+    git.checkout().setName( Constants.MASTER ).call();
+    ru = db.updateRef( upstream );
+    ru.setNewObjectId( other );
+    ru.forceUpdate();
+    assertArrayEquals( new int[] { 1, 2 }, uiGit.getAheadBehind() );
+
+    // A merge commit is ahead, and the merged commits are no longer behind
+    git.merge().include( other ).call();
+    assertArrayEquals( new int[] { 2, 0 }, uiGit.getAheadBehind() );
+    BranchTrackingStatus status = BranchTrackingStatus.of( db, Constants.MASTER );
+    assertArrayEquals( new int[] { status.getAheadCount(), status.getBehindCount() }, uiGit.getAheadBehind() );
+    assertEquals( 6, uiGit.getGenerationIndex().size() );
+
+    // Saved and loaded
+    File file = new File( db.getDirectory(), "generations" );
+    try ( ObjectReader reader = db.newObjectReader() ) {
+      uiGit.getGenerationIndex().save( file, reader );
+    }
+    assertEquals( 0, uiGit.getGenerationIndex().getUnsavedCount() );
+    assertEquals( 6, uiGit.getGenerationIndex().size() );
+    GenerationIndex index = new GenerationIndex();
+    index.load( file );
+    assertEquals( 6, index.size() );
+    assertEquals( 0, index.getUnsavedCount() );
+    try ( RevWalk walk = new RevWalk( db ) ) {
+      assertEquals( 5, index.getGeneration( walk, walk.parseCommit( db.resolve( Constants.HEAD ) ) ) );
+      assertEquals( 4, index.getGeneration( walk, walk.parseCommit( other ) ) );
+    }
+    assertEquals( 6, index.size() );
+    assertEquals( 0, index.getUnsavedCount() );
+
+    // New commits are merged into the file, and commits not in the repository are dropped
+    RevCommit fourth = git.commit().setMessage( "fourth" ).call();
+    Git git2 = new Git( db2 );
+    RevCommit foreign = git2.commit().setMessage( "foreign" ).call();
+    try ( RevWalk walk = new RevWalk( db ); RevWalk walk2 = new RevWalk( db2 ); ObjectReader reader = db.newObjectReader() ) {
+      assertEquals( 6, index.getGeneration( walk, walk.parseCommit( fourth ) ) );
+      assertEquals( 1, index.getGeneration( walk2, walk2.parseCommit( foreign ) ) );
+      assertEquals( 2, index.getUnsavedCount() );
+      index.save( file, reader );
+      assertEquals( 7, index.size() );
+      assertEquals( 6, index.getGeneration( walk, walk.parseCommit( fourth ) ) );
+      assertEquals( 0, index.getUnsavedCount() );
+    }
+    index.close();
+
+    // Opened on first use rather than on open
+    try ( ObjectReader reader = db.newObjectReader() ) {
+      uiGit.getGenerationIndex().save( new File( db.getDirectory(), UIGit.GENERATION_INDEX_FILE ), reader );
+    }
+    UIGit uiGit2 = new UIGit();
+    uiGit2.openRepo( db.getWorkTree().getPath() );
+    try {
+      assertNull( uiGit2.getGenerationIndex() );
+      assertArrayEquals( new int[] { 3, 0 }, uiGit2.getAheadBehind() );
+      assertEquals( 7, uiGit2.getGenerationIndex().size() );
+      assertEquals( 1, uiGit2.getGenerationIndex().getUnsavedCount() );
+    } finally {
+      uiGit2.closeRepo();
+    }
+  }
+
+  @Test
+  public void testGetAheadBehindClosed() throws Exception {
+    initialCommit();
+    setupRemote();
+    StoredConfig config = db.getConfig();
+    config.setString( ConfigConstants.CONFIG_BRANCH_SECTION, Constants.MASTER, ConfigConstants.CONFIG_KEY_REMOTE, Constants.DEFAULT_REMOTE_NAME );
+    config.setString( ConfigConstants.CONFIG_BRANCH_SECTION, Constants.MASTER, ConfigConstants.CONFIG_KEY_MERGE, Constants.R_HEADS + Constants.MASTER );
+    config.save();
+    RefUpdate ru = db.updateRef( Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + Constants.MASTER );
+    ru.setNewObjectId( db.resolve( Constants.HEAD ) );
+    ru.forceUpdate();
+    git.commit().setMessage( "second" ).call();
+
+    UIGit uiGit2 = spy( new UIGit() );
+    uiGit2.openRepo( db.getWorkTree().getPath() );
+    // Closed while counting in the background
+    doAnswer( invocation -> new RevWalk( db ) {
+      @Override
+      public void parseHeaders( RevObject obj ) throws IOException {
+        if ( uiGit2.getGenerationIndex() != null ) {
+          uiGit2.closeRepo();
+        }
+        super.parseHeaders( obj );
+      }
+    } ).when( uiGit2 ).createRevWalk();
+    assertNull( uiGit2.getAheadBehind() );
+    assertNull( uiGit2.getGenerationIndex() );
+
+    // After closed
+    assertNull( uiGit2.getAheadBehind() );
+    verify( uiGit2, times( 1 ) ).createRevWalk();
+  }
+
+  @Test
+  public void testGetRevisionsPaged() throws Exception {
+    RevCommit first = initialCommit();
+    RevCommit second = git.commit().setMessage( "second commit" ).call();
+    RevCommit third = git.commit().setMessage( "third commit" ).call();
+
+    UIRepositoryObjectRevisions page = uiGit.getRevisions( 0, 2 );
+    assertEquals( 2, page.size() );
+    assertEquals( third.getName(), page.get( 0 ).getName() );
+    assertEquals( second.getName(), page.get( 1 ).getName() );
+
+    page = uiGit.getRevisions( 2, 2 );
+    assertEquals( 1, page.size() );
+    assertEquals( first.getName(), page.get( 0 ).getName() );
+
+    assertTrue( uiGit.getRevisions( 3, 2 ).isEmpty() );
+
+    // WIP is listed on the first page only
+    writeTrashFile( "Test.txt", "Hello world 2" );
+    uiGit.invalidateStatus();
+    page = uiGit.getRevisions( 0, 2 );
+    assertEquals( 3, page.size() );
+    assertEquals( IVCS.WORKINGTREE, page.get( 0 ).getName() );
+    assertEquals( first.getName(), uiGit.getRevisions( 2, 2 ).get( 0 ).getName() );
+  }
+
+  @Test
+  public void testRollback() throws Exception {
+    initialCommit();
+    File file = writeTrashFile( "Test.txt", "Hello world" );
+    // History below the target, which should not be walked
+    for ( int i = 0; i < 10; i++ ) {
+      writeTrashFile( "Other.txt", "Other " + i );
+      git.add().addFilepattern( "Other.txt" ).call();
+      git.commit().setMessage( "other commit " + i ).call();
+    }
+    writeTrashFile( "Test.txt", "Second" );
+    git.add().addFilepattern( "Test.txt" ).call();
+    RevCommit second = git.commit().setMessage( "second commit" ).call();
+    writeTrashFile( "Test.txt", "Third" );
+    git.add().addFilepattern( "Test.txt" ).call();
+    RevCommit third = git.commit().setMessage( "third commit" ).call();
+
+    AtomicInteger walked = new AtomicInteger();
+    doAnswer( invocation -> new RevWalk( db ) {
+      @Override
+      public RevCommit next() throws MissingObjectException, IncorrectObjectTypeException, IOException {
+        RevCommit commit = super.next();
+        if ( commit != null ) {
+          walked.incrementAndGet();
+        }
+        return commit;
+      }
+    } ).when( uiGit ).createRevWalk();
+
+    // Distance of 1
+    assertTrue( uiGit.rollback( third.getName() ) );
+    assertEquals( "Second", FileUtils.readFileToString( file ) );
+    verify( uiGit, times( 1 ) ).createRevWalk();
+    assertEquals( 1, walked.get() );
+    git.add().addFilepattern( "Test.txt" ).call();
+    git.commit().setMessage( "rollback" ).call();
+
+    // Distance of 3 walks the history just once and as far as the target
+    walked.set( 0 );
+    assertTrue( uiGit.rollback( second.getName() ) );
+    assertEquals( "Hello world", FileUtils.readFileToString( file ) );
+    verify( uiGit, times( 2 ) ).createRevWalk();
+    assertEquals( 3, walked.get() );
+    verify( uiGit, never() ).getRevisions();
+  }
+
   @Test
   public void testGetUnstagedAndStagedObjects() throws Exception {
     // Create files
@@ -145,6 +376,7 @@ public class UIGitTest extends RepositoryTestCase {
 
     // Test for staged
     git.add().addFilepattern( "." ).call();
+    uiGit.invalidateStatus();
     List<UIFile> stagedObjects = uiGit.getStagedFiles();
     assertEquals( 3, stagedObjects.size() );
     assertTrue( stagedObjects.stream().anyMatch( obj -> obj.getName().equals( "a.ktr" ) ) );
@@ -159,6 +391,7 @@ public class UIGitTest extends RepositoryTestCase {
     a.renameTo( new File( git.getRepository().getWorkTree(), "a2.ktr" ) );
     b.delete();
     FileUtils.writeStringToFile( c, "A change" );
+    uiGit.invalidateStatus();
 
     // Test for unstaged
     unStagedObjects = uiGit.getUnstagedFiles();
@@ -168,6 +401,7 @@ public class UIGitTest extends RepositoryTestCase {
     git.add().addFilepattern( "." ).call();
     git.rm().addFilepattern( a.getName() ).call();
     git.rm().addFilepattern( b.getName() ).call();
+    uiGit.invalidateStatus();
     stagedObjects = uiGit.getStagedFiles();
     assertEquals( 4, stagedObjects.size() );
     assertEquals( ChangeType.DELETE, stagedObjects.stream().filter( obj -> obj.getName().equals( "b.kjb" ) ).findFirst().get().getChangeType() );
@@ -175,6 +409,273 @@ public class UIGitTest extends RepositoryTestCase {
     assertEquals( ChangeType.MODIFY, stagedObjects.stream().filter( obj -> obj.getName().equals( "c.kjb" ) ).findFirst().get().getChangeType() );
   }
 
+  @Test
+  public void testRenameDetection() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for ( int i = 0; i < 100; i++ ) {
+      sb.append( "<step>Step " ).append( i ).append( "</step>\n" );
+    }
+    String similar = sb.toString();
+    writeTrashFile( "a.ktr", "identical" );
+    writeTrashFile( "dir1/b.ktr", "identical" );
+    writeTrashFile( "c.ktr", similar );
+    writeTrashFile( "d.ktr", "unrelated" );
+    git.add().addFilepattern( "." ).call();
+    RevCommit commit1 = git.commit().setMessage( "initial commit" ).call();
+
+    // Exact renames are paired by id, preferring the same file name
+    deleteTrashFile( "a.ktr" );
+    deleteTrashFile( "dir1/b.ktr" );
+    deleteTrashFile( "c.ktr" );
+    writeTrashFile( "dir2/a2.ktr", "identical" );
+    writeTrashFile( "dir2/b.ktr", "identical" );
+    writeTrashFile( "c2.ktr", similar + "<step>Step 100</step>\n" );
+    writeTrashFile( "e.ktr", "new" );
+    git.add().addFilepattern( "." ).call();
+    git.rm().addFilepattern( "a.ktr" ).addFilepattern( "dir1/b.ktr" ).addFilepattern( "c.ktr" ).call();
+    RevCommit commit2 = git.commit().setMessage( "rename" ).call();
+
+    List<UIFile> files = uiGit.getStagedFiles( commit1.getName(), commit2.getName() );
+    assertEquals( Arrays.asList( "c2.ktr", "dir2/a2.ktr", "dir2/b.ktr", "e.ktr" ),
+      files.stream().map( UIFile::getName ).collect( Collectors.toList() ) );
+    assertEquals( Arrays.asList( ChangeType.RENAME, ChangeType.RENAME, ChangeType.RENAME, ChangeType.ADD ),
+      files.stream().map( UIFile::getChangeType ).collect( Collectors.toList() ) );
+
+    ParallelRenameDetector rd = new ParallelRenameDetector( db );
+    List<DiffEntry> diffs;
+    try ( TreeWalk walk = new TreeWalk( db ) ) {
+      walk.addTree( commit1.getTree() );
+      walk.addTree( commit2.getTree() );
+      walk.setRecursive( true );
+      diffs = rd.compute( DiffEntry.scan( walk ) );
+    }
+    assertEquals( "dir1/b.ktr", diffs.stream().filter( diff -> diff.getNewPath().equals( "dir2/b.ktr" ) ).findFirst().get().getOldPath() );
+    assertEquals( 100, diffs.stream().filter( diff -> diff.getNewPath().equals( "dir2/a2.ktr" ) ).findFirst().get().getScore() );
+    assertTrue( diffs.stream().filter( diff -> diff.getNewPath().equals( "c2.ktr" ) ).findFirst().get().getScore() < 100 );
+    assertFalse( rd.isOverRenameLimit() );
+
+    // Over the limit, only exact renames are detected
+    GitRepository repo = new GitRepository();
+    repo.setRenameLimit( 1 );
+    uiGit.configure( repo );
+    files = uiGit.getStagedFiles( commit1.getName(), commit2.getName() );
+    assertEquals( ChangeType.DELETE, files.stream().filter( file -> file.getName().equals( "c.ktr" ) ).findFirst().get().getChangeType() );
+    assertEquals( ChangeType.ADD, files.stream().filter( file -> file.getName().equals( "c2.ktr" ) ).findFirst().get().getChangeType() );
+    assertEquals( ChangeType.RENAME, files.stream().filter( file -> file.getName().equals( "dir2/b.ktr" ) ).findFirst().get().getChangeType() );
+
+    // Within the limit but below the threshold
+    repo.setRenameLimit( ParallelRenameDetector.DEFAULT_RENAME_LIMIT );
+    repo.setRenameScore( 100 );
+    uiGit.configure( repo );
+    files = uiGit.getStagedFiles( commit1.getName(), commit2.getName() );
+    assertEquals( ChangeType.ADD, files.stream().filter( file -> file.getName().equals( "c2.ktr" ) ).findFirst().get().getChangeType() );
+  }
+
+  @Test
+  public void testStatusSnapshot() throws Exception {
+    initialCommit();
+    writeTrashFile( "Test.txt", "Hello world 2" );
+    writeTrashFile( "Untracked.txt", "Hello world" );
+
+    StatusSnapshot status = uiGit.getStatus();
+    assertEquals( 2, uiGit.getUnstagedFiles().size() );
+    assertFalse( uiGit.hasStagedFiles() );
+    assertFalse( uiGit.isClean() );
+    uiGit.getRevisions();
+    // Scanned just once
+    assertSame( status, uiGit.getStatus() );
+
+    // Invalidated upon mutation
+    uiGit.add( "Test.txt" );
+    assertNotSame( status, uiGit.getStatus() );
+    assertEquals( 1, uiGit.getStagedFiles().size() );
+    assertEquals( 1, uiGit.getUnstagedFiles().size() );
+    assertTrue( uiGit.getStatus().hasUncommittedChanges() );
+  }
+
+  @Test
+  public void testIncrementalStatus() throws Exception {
+    initialCommit();
+    UIGit uiGit = spy( new UIGit() );
+    uiGit.openRepo( db.getWorkTree().getPath() );
+    try {
+      assertTrue( uiGit.isClean() );
+
+      writeTrashFile( "Test.txt", "Hello world 2" );
+      writeTrashFile( "dir/New.txt", "Hello world" );
+      List<UIFile> files = waitForUnstagedFiles( uiGit, 2 );
+      assertEquals( ChangeType.MODIFY, files.stream().filter( obj -> obj.getName().equals( "Test.txt" ) ).findFirst().get().getChangeType() );
+      assertEquals( ChangeType.ADD, files.stream().filter( obj -> obj.getName().equals( "dir/New.txt" ) ).findFirst().get().getChangeType() );
+
+      FileUtils.deleteDirectory( new File( db.getWorkTree(), "dir" ) );
+      files = waitForUnstagedFiles( uiGit, 1 );
+      assertEquals( "Test.txt", files.get( 0 ).getName() );
+
+      // A refresh keeps the snapshot and re-scans only what the watcher has reported
+      writeTrashFile( "Test2.txt", "Hello world" );
+      assertEquals( 2, waitForUnstagedFiles( uiGit, 2 ).size() );
+      uiGit.invalidateStatus();
+      assertEquals( 2, uiGit.getUnstagedFiles().size() );
+
+      // Staging re-scans only the staged path
+      uiGit.add( "Test2.txt" );
+      assertEquals( "Test2.txt", uiGit.getStagedFiles().get( 0 ).getName() );
+      assertEquals( 1, uiGit.getUnstagedFiles().size() );
+      uiGit.resetPath( "Test2.txt" );
+      assertTrue( uiGit.getStagedFiles().isEmpty() );
+      assertEquals( 2, uiGit.getUnstagedFiles().size() );
+      verify( uiGit, times( 1 ) ).scanStatus( (Collection<String>) isNull(), anyInt() );
+    } finally {
+      uiGit.closeRepo();
+    }
+  }
+
+  @Test
+  public void testStatusAfterFailedScan() throws Exception {
+    initialCommit();
+    assertTrue( uiGit.isClean() );
+
+    writeTrashFile( "Test2.txt", "Hello world" );
+    doThrow( new JGitInternalException( "Failed" ) ).when( uiGit ).scanStatus( anyCollectionOf( String.class ), anyInt() );
+    uiGit.add( "Test2.txt" );
+    assertTrue( uiGit.getStagedFiles().isEmpty() );
+
+    // The path which failed to be re-scanned is not lost
+    doCallRealMethod().when( uiGit ).scanStatus( anyCollectionOf( String.class ), anyInt() );
+    assertEquals( "Test2.txt", uiGit.getStagedFiles().get( 0 ).getName() );
+  }
+
+  @Test
+  public void testWatcherSkipsIgnoredDirectories() throws Exception {
+    writeTrashFile( ".gitignore", "target/\n" );
+    writeTrashFile( "target/classes/a.txt", "Hello world" );
+    writeTrashFile( "src/b.txt", "Hello world" );
+    writeTrashFile( "skipped/c.txt", "Hello world" );
+    try ( WorkingTreeWatcher watcher = new WorkingTreeWatcher( db, Collections.singletonList( "skipped" ) ) ) {
+      List<String> dirs = watcher.getWatchedDirectories().stream()
+        .map( dir -> db.getWorkTree().toPath().toAbsolutePath().normalize().relativize( dir ).toString() )
+        .collect( Collectors.toList() );
+      assertTrue( dirs.contains( "" ) );
+      assertTrue( dirs.contains( "src" ) );
+      assertFalse( dirs.contains( "target" ) );
+      assertFalse( dirs.contains( "target" + File.separator + "classes" ) );
+      assertFalse( dirs.contains( "skipped" ) );
+      assertFalse( dirs.contains( Constants.DOT_GIT ) );
+    }
+  }
+
+  @Test
+  public void testLargeRepository() throws Exception {
+    initialCommit();
+    writeTrashFile( "Test.txt", "Hello world 2" );
+    writeTrashFile( "Untracked1.txt", "Hello world" );
+    writeTrashFile( "Untracked2.txt", "Hello world" );
+    writeTrashFile( "Untracked3.txt", "Hello world" );
+    writeTrashFile( "dir/a.txt", "Hello world" );
+    writeTrashFile( "dir/b.txt", "Hello world" );
+    writeTrashFile( "skipped/c.txt", "Hello world" );
+
+    GitRepository repo = new GitRepository();
+    repo.setLargeRepository( true );
+    repo.setMaxUntrackedFiles( 4 );
+    repo.setSkippedDirectories( "skipped" );
+    uiGit.configure( repo );
+
+    List<String> names = uiGit.getUnstagedFiles().stream().map( UIFile::getName ).collect( Collectors.toList() );
+    // An untracked directory is collapsed into a single entry
+    assertTrue( names.contains( "dir/" ) );
+    assertFalse( names.contains( "dir/a.txt" ) );
+    assertFalse( names.contains( "skipped/c.txt" ) );
+    assertEquals( 5, names.size() );
+
+    // Untracked entries are capped but tracked changes are not
+    repo.setMaxUntrackedFiles( 1 );
+    uiGit.configure( repo );
+    names = uiGit.getUnstagedFiles().stream().map( UIFile::getName ).collect( Collectors.toList() );
+    assertEquals( 2, names.size() );
+    assertTrue( names.contains( "Test.txt" ) );
+
+    uiGit.add( "dir/" );
+    assertEquals( 2, uiGit.getStagedFiles().size() );
+  }
+
+  @Test
+  public void testLargeRepositoryIgnored() throws Exception {
+    writeTrashFile( ".gitignore", "target/\n*.log\n" );
+    git.add().addFilepattern( ".gitignore" ).call();
+    git.commit().setMessage( "ignore" ).call();
+    writeTrashFile( "target/a.class", "Hello world" );
+    writeTrashFile( "target/b.class", "Hello world" );
+    writeTrashFile( "a.log", "Hello world" );
+    writeTrashFile( "b.log", "Hello world" );
+    writeTrashFile( "Untracked1.txt", "Hello world" );
+    writeTrashFile( "dir/c.txt", "Hello world" );
+
+    GitRepository repo = new GitRepository();
+    repo.setLargeRepository( true );
+    repo.setMaxUntrackedFiles( 2 );
+    uiGit.configure( repo );
+
+    // Ignored entries are neither listed nor counted against the limit
+    List<String> names = uiGit.getUnstagedFiles().stream().map( UIFile::getName ).collect( Collectors.toList() );
+    assertEquals( 2, names.size() );
+    assertTrue( names.contains( "Untracked1.txt" ) );
+    assertTrue( names.contains( "dir/" ) );
+  }
+
+  @Test
+  public void testLargeRepositoryIncrementalStatus() throws Exception {
+    initialCommit();
+    writeTrashFile( "Untracked1.txt", "Hello world" );
+    GitRepository repo = new GitRepository();
+    repo.setLargeRepository( true );
+    repo.setMaxUntrackedFiles( 2 );
+    UIGit uiGit = new UIGit();
+    uiGit.configure( repo );
+    uiGit.openRepo( db.getWorkTree().getPath() );
+    try {
+      assertEquals( 1, uiGit.getUnstagedFiles().size() );
+
+      // The limit holds for the snapshot merged with partial scans
+      writeTrashFile( "Untracked2.txt", "Hello world" );
+      writeTrashFile( "Untracked3.txt", "Hello world" );
+      List<UIFile> files = waitForUnstagedFiles( uiGit, 2 );
+      assertEquals( 2, files.size() );
+      Thread.sleep( 500 );
+      assertEquals( 2, uiGit.getUnstagedFiles().size() );
+
+      // A removed entry is replaced by one dropped by the limit
+      String listed = files.stream().map( UIFile::getName ).filter( name -> !name.equals( "Untracked1.txt" ) ).findFirst().get();
+      new File( db.getWorkTree(), listed ).delete();
+      files = waitForUnstagedFiles( uiGit, 2, listed );
+      assertFalse( files.stream().anyMatch( file -> file.getName().equals( listed ) ) );
+      assertEquals( 2, files.size() );
+    } finally {
+      uiGit.closeRepo();
+    }
+  }
+
+  private List<UIFile> waitForUnstagedFiles( UIGit uiGit, int expected ) throws Exception {
+    return waitForUnstagedFiles( uiGit, expected, null );
+  }
+
+  /**
+   * @param removed a file whose entry has to disappear as well, or null
+   */
+  private List<UIFile> waitForUnstagedFiles( UIGit uiGit, int expected, String removed ) throws Exception {
+    List<UIFile> files = null;
+    for ( int i = 0; i < 100; i++ ) {
+      // Picked up by the watcher without a refresh
+      files = uiGit.getUnstagedFiles();
+      if ( files.size() == expected && files.stream().noneMatch( file -> file.getName().equals( removed ) ) ) {
+        break;
+      }
+      Thread.sleep( 100 );
+    }
+    return files;
+  }
+
+
   @Test
   public void testPull() throws Exception {
     // source: db2, target: db
@@ -370,6 +871,170 @@ public class UIGitTest extends RepositoryTestCase {
     assertTrue( diff.contains( "+second commit" ) );
   }
 
+  @Test
+  public void testDiffCache() throws Exception {
+    RevCommit commit1 = initialCommit();
+    writeTrashFile( "Test.txt", "second commit" );
+    git.add().addFilepattern( "Test.txt" ).call();
+    RevCommit commit2 = git.commit().setMessage( "second commit" ).call();
+
+    String diff = uiGit.diff( commit1.getName(), commit2.getName(), "Test.txt" );
+    assertTrue( diff.contains( "+second commit" ) );
+    assertEquals( diff, uiGit.diff( commit1.getName(), commit2.getName(), "Test.txt" ) );
+    assertEquals( 1, uiGit.getDiffCache().getHits() );
+
+    // A modified file in the working tree is not cached as a change of the same size may keep the timestamp
+    writeTrashFile( "Test.txt", "working tree 1" );
+    assertTrue( uiGit.diff( IVCS.INDEX, IVCS.WORKINGTREE, "Test.txt" ).contains( "+working tree 1" ) );
+    writeTrashFile( "Test.txt", "working tree 2" );
+    assertTrue( uiGit.diff( IVCS.INDEX, IVCS.WORKINGTREE, "Test.txt" ).contains( "+working tree 2" ) );
+    assertEquals( 1, uiGit.getDiffCache().getHits() );
+
+    // A clean file is identified by its index entry
+    File file = new File( db.getWorkTree(), "Test.txt" );
+    file.setLastModified( file.lastModified() - 10000 );
+    git.add().addFilepattern( "Test.txt" ).call();
+    diff = uiGit.diff( commit2.getName(), IVCS.WORKINGTREE, "Test.txt" );
+    assertTrue( diff.contains( "+working tree 2" ) );
+    assertEquals( diff, uiGit.diff( commit2.getName(), IVCS.WORKINGTREE, "Test.txt" ) );
+    assertEquals( 2, uiGit.getDiffCache().getHits() );
+    // Same as the staged diff
+    assertEquals( diff, uiGit.diff( commit2.getName(), IVCS.INDEX, "Test.txt" ) );
+    assertEquals( 3, uiGit.getDiffCache().getHits() );
+
+    // but not while it is racily clean
+    db.getIndexFile().setLastModified( file.lastModified() );
+    writeTrashFile( "Test.txt", "working tree 3" );
+    file.setLastModified( db.getIndexFile().lastModified() );
+    assertTrue( uiGit.diff( commit2.getName(), IVCS.WORKINGTREE, "Test.txt" ).contains( "+working tree 3" ) );
+    assertEquals( 3, uiGit.getDiffCache().getHits() );
+  }
+
+  @Test
+  public void testReadDirCache() throws Exception {
+    initialCommit();
+    // An index written just now is re-read as it may be changed again within the timestamp resolution
+    db.getIndexFile().setLastModified( System.currentTimeMillis() - 10000 );
+    DirCache dirCache = uiGit.readDirCache();
+    assertSame( dirCache, uiGit.readDirCache() );
+
+    writeTrashFile( "Test2.txt", "Hello world" );
+    git.add().addFilepattern( "Test2.txt" ).call();
+    db.getIndexFile().setLastModified( System.currentTimeMillis() - 5000 );
+    DirCache reread = uiGit.readDirCache();
+    assertNotSame( dirCache, reread );
+    assertNotNull( reread.getEntry( "Test2.txt" ) );
+    assertSame( reread, uiGit.readDirCache() );
+  }
+
+  @Test
+  public void testDiffBudget() throws Exception {
+    StringBuilder oldText = new StringBuilder();
+    StringBuilder newText = new StringBuilder();
+    for ( int i = 0; i < 2000; i++ ) {
+      oldText.append( "old line " ).append( i ).append( "\n" );
+      newText.append( i % 2 == 0 ? "new line " : "old line " ).append( i ).append( "\n" );
+    }
+    writeTrashFile( "Big.txt", oldText.toString() );
+    git.add().addFilepattern( "Big.txt" ).call();
+    RevCommit commit1 = git.commit().setMessage( "initial commit" ).call();
+    writeTrashFile( "Big.txt", newText.toString() );
+    git.add().addFilepattern( "Big.txt" ).call();
+    RevCommit commit2 = git.commit().setMessage( "second commit" ).call();
+
+    // Byte budget
+    uiGit.setDiffBudget( 1000, 60000, 1024 * 1024 );
+    String diff = uiGit.diff( commit1.getName(), commit2.getName(), "Big.txt" );
+    assertTrue( diff.endsWith( IVCS.DIFF_TRUNCATED ) );
+    assertTrue( diff.length() < 1100 );
+    String full = uiGit.diff( commit1.getName(), commit2.getName(), "Big.txt", true );
+    assertFalse( full.endsWith( IVCS.DIFF_TRUNCATED ) );
+    assertTrue( full.contains( "+new line 1998" ) );
+    // The full diff is cached and serves the budgeted mode as well
+    assertEquals( full, uiGit.diff( commit1.getName(), commit2.getName(), "Big.txt" ) );
+
+    // Streamed into the caller's text
+    uiGit.getDiffCache().clear();
+    StringBuilder streamed = new StringBuilder();
+    uiGit.diff( commit1.getName(), commit2.getName(), "Big.txt", true, streamed );
+    assertEquals( full, streamed.toString() );
+    streamed = new StringBuilder();
+    uiGit.setDiffBudget( 1000, 60000, 1024 * 1024 );
+    uiGit.diff( commit1.getName(), commit2.getName(), "Big.txt", false, streamed );
+    assertEquals( full, streamed.toString() ); // From the cache
+
+    // Lines are hashed by the deadline comparator as by the default one
+    uiGit.getDiffCache().clear();
+    uiGit.setDiffBudget( 1024 * 1024, 60000, 1024 * 1024 );
+    assertEquals( full, uiGit.diff( commit1.getName(), commit2.getName(), "Big.txt" ) );
+
+    // Time budget
+    uiGit.getDiffCache().clear();
+    uiGit.setDiffBudget( 1024 * 1024, 0, 1024 * 1024 );
+    diff = uiGit.diff( commit1.getName(), commit2.getName(), "Big.txt" );
+    assertTrue( diff.endsWith( IVCS.DIFF_TRUNCATED ) );
+    assertTrue( diff.contains( "takes longer" ) );
+
+    // Large file
+    uiGit.getDiffCache().clear();
+    uiGit.setDiffBudget( 1024 * 1024, 60000, 1000 );
+    diff = uiGit.diff( commit1.getName(), IVCS.WORKINGTREE, "Big.txt" );
+    assertTrue( diff.endsWith( IVCS.DIFF_TRUNCATED ) );
+    assertTrue( diff.contains( "too large" ) );
+  }
+
+  @Test
+  public void testDiffBudgetCharacterBoundary() throws Exception {
+    StringBuilder text = new StringBuilder();
+    for ( int i = 0; i < 200; i++ ) {
+      text.append( "\u5909\u63db\u3057\u305f\u884c\n" );
+    }
+    writeTrashFile( "Multibyte.txt", text.toString() );
+    git.add().addFilepattern( "Multibyte.txt" ).call();
+    RevCommit commit = git.commit().setMessage( "initial commit" ).call();
+
+    // Budgets cutting a line of 3-byte characters at each of its bytes
+    for ( int budget = 1000; budget < 1017; budget++ ) {
+      uiGit.getDiffCache().clear();
+      uiGit.setDiffBudget( budget, 60000, 1024 * 1024 );
+      String diff = uiGit.diff( null, commit.getName(), "Multibyte.txt" );
+      assertTrue( diff.endsWith( IVCS.DIFF_TRUNCATED ) );
+      // No replacement of a partial character, neither in the text nor in the cache
+      assertFalse( diff.contains( "?" ) || diff.contains( "\uFFFD" ) );
+      assertEquals( diff, uiGit.diff( null, commit.getName(), "Multibyte.txt" ) );
+      assertEquals( budget - 999, uiGit.getDiffCache().getHits() );
+      String patch = diff.substring( 0, diff.indexOf( "\\ Diff exceeds" ) );
+      assertTrue( patch.getBytes( StandardCharsets.UTF_8 ).length <= budget + 1 );
+    }
+  }
+
+  @Test
+  public void testDiffBinary() throws Exception {
+    byte[] content = new byte[2 * 1024 * 1024];
+    content[10] = 1;
+    writeTrashFile( "Binary.bin", new String( content, StandardCharsets.ISO_8859_1 ) );
+    git.add().addFilepattern( "Binary.bin" ).call();
+    RevCommit commit1 = git.commit().setMessage( "initial commit" ).call();
+    content[10] = 2;
+    writeTrashFile( "Binary.bin", new String( content, StandardCharsets.ISO_8859_1 ) );
+
+    // Told from the head of the contents, even in the full mode and beyond the file size budget
+    uiGit.setDiffBudget( 1000, 60000, 1000 );
+    String expected = "diff --git a/Binary.bin b/Binary.bin\nBinary files differ\n";
+    assertEquals( expected, uiGit.diff( commit1.getName(), IVCS.WORKINGTREE, "Binary.bin", true ) );
+    assertEquals( expected, uiGit.diff( null, IVCS.INDEX, "Binary.bin", true ) );
+    assertEquals( "", uiGit.diff( commit1.getName(), IVCS.INDEX, "Binary.bin", true ) );
+  }
+
+  @Test
+  public void testDiffAlgorithm() throws Exception {
+    assertEquals( SupportedAlgorithm.HISTOGRAM, uiGit.getDiffAlgorithm() );
+    StoredConfig config = db.getConfig();
+    config.setEnum( ConfigConstants.CONFIG_DIFF_SECTION, null, ConfigConstants.CONFIG_KEY_ALGORITHM, SupportedAlgorithm.MYERS );
+    config.save();
+    assertEquals( SupportedAlgorithm.MYERS, uiGit.getDiffAlgorithm() );
+  }
+
   @Test
   public void testOpen() throws Exception {
     RevCommit commit = initialCommit();
@@ -385,6 +1050,28 @@ public class UIGitTest extends RepositoryTestCase {
     assertEquals( "Hello world", writer.toString() );
   }
 
+  @Test
+  public void testOpenBatch() throws Exception {
+    writeTrashFile( "a.ktr", "a" );
+    writeTrashFile( "dir/b.ktr", "b" );
+    writeTrashFile( "dir/c.ktr", "c" );
+    writeTrashFile( "d/e.ktr", "e" );
+    git.add().addFilepattern( "." ).call();
+    RevCommit commit = git.commit().setMessage( "initial commit" ).call();
+    writeTrashFile( "a.ktr", "a2" );
+
+    Map<String, String> contents = new TreeMap<String, String>();
+    IVCS.ContentConsumer consumer = ( file, content ) -> contents.put( file, IOUtils.toString( content, "UTF-8" ) );
+    // A missing file and a directory are skipped
+    List<String> files = Arrays.asList( "a.ktr", "dir/c.ktr", "missing.ktr", "d" );
+    uiGit.open( files, commit.getName(), consumer );
+    assertEquals( "{a.ktr=a, dir/c.ktr=c}", contents.toString() );
+
+    contents.clear();
+    uiGit.open( files, IVCS.WORKINGTREE, consumer );
+    assertEquals( "{a.ktr=a2, dir/c.ktr=c}", contents.toString() );
+  }
+
   @Test
   public void testCheckout() throws Exception {
     initialCommit();
@@ -411,6 +1098,25 @@ public class UIGitTest extends RepositoryTestCase {
     assertEquals( "Hello world", FileUtils.readFileToString( file ) );
   }
 
+  @Test
+  public void testBatchAddResetRevert() throws Exception {
+    initialCommit();
+    writeTrashFile( "Test.txt", "Hello world 2" );
+    writeTrashFile( "a.txt", "Hello world" );
+    writeTrashFile( "b.txt", "Hello world" );
+
+    uiGit.add( Arrays.asList( "Test.txt", "a.txt", "b.txt" ) );
+    assertEquals( 3, uiGit.getStagedFiles().size() );
+
+    uiGit.resetPaths( Arrays.asList( "a.txt", "b.txt" ) );
+    assertEquals( 1, uiGit.getStagedFiles().size() );
+    assertEquals( 2, uiGit.getUnstagedFiles().size() );
+
+    uiGit.revertPaths( Arrays.asList( "Test.txt", "a.txt", "b.txt" ) );
+    assertTrue( uiGit.isClean() );
+    assertFalse( new File( db.getWorkTree(), "a.txt" ).exists() );
+  }
+
   @Test
   public void testCreateDeleteBranchTag() throws Exception {
     initialCommit();
@@ -459,6 +1165,38 @@ public class UIGitTest extends RepositoryTestCase {
     assertFalse( file.exists() );
   }
 
+  @Test
+  public void testCloneSingleBranch() throws Exception {
+    initialCommit();
+    git.branchCreate().setName( "develop" ).call();
+    git.checkout().setName( "develop" ).call();
+    writeTrashFile( "Develop.txt", "Hello world" );
+    git.add().addFilepattern( "Develop.txt" ).call();
+    git.commit().setMessage( "develop commit" ).call();
+    git.checkout().setName( Constants.MASTER ).call();
+    String url = db.getWorkTree().toURI().toString(); // file://
+
+    // All branches, checkout develop
+    File dir = createTempDirectory( "clone" );
+    assertTrue( uiGit.cloneRepo( dir.getPath(), url, "develop", false ) );
+    try ( Git clone = Git.open( dir ) ) {
+      assertEquals( "develop", clone.getRepository().getBranch() );
+      assertNotNull( clone.getRepository().exactRef( Constants.R_REMOTES + "origin/master" ) );
+      assertTrue( new File( dir, "Develop.txt" ).exists() );
+    }
+
+    // Only develop
+    dir = createTempDirectory( "clone" );
+    assertTrue( uiGit.cloneRepo( dir.getPath(), url, "develop", true ) );
+    try ( Git clone = Git.open( dir ) ) {
+      assertEquals( "develop", clone.getRepository().getBranch() );
+      assertNotNull( clone.getRepository().exactRef( Constants.R_REMOTES + "origin/develop" ) );
+      assertNull( clone.getRepository().exactRef( Constants.R_REMOTES + "origin/master" ) );
+      assertEquals( "+refs/heads/develop:refs/remotes/origin/develop",
+        new RemoteConfig( clone.getRepository().getConfig(), Constants.DEFAULT_REMOTE_NAME ).getFetchRefSpecs().get( 0 ).toString() );
+    }
+  }
+
   private RevCommit initialCommit() throws Exception {
     writeTrashFile( "Test.txt", "Hello world" );
     git.add().addFilepattern( "Test.txt" ).call();
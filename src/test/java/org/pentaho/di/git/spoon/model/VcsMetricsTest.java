@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Hitachi America, Ltd., R&D.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pentaho.di.git.spoon.model;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.pentaho.di.core.logging.LogChannelInterface;
+
+public class VcsMetricsTest {
+
+  @Test
+  public void testWrap() throws Exception {
+    IVCS vcs = mock( IVCS.class );
+    when( vcs.getBranch() ).thenReturn( "master" );
+    doThrow( new IllegalStateException( "conflict" ) ).when( vcs ).openRepo( anyString() );
+    VcsMetrics metrics = new VcsMetrics( null );
+    IVCS wrapped = metrics.wrap( vcs );
+
+    assertEquals( "master", wrapped.getBranch() );
+    assertEquals( "master", wrapped.getBranch() );
+    try {
+      wrapped.openRepo( "/tmp" );
+      fail();
+    } catch ( IllegalStateException e ) {
+      // The original exception is thrown as is
+      assertEquals( "conflict", e.getMessage() );
+    }
+
+    assertEquals( Long.valueOf( 2 ), metrics.getInvocationCounts().get( "getBranch()" ) );
+    assertEquals( Long.valueOf( 0 ), metrics.getErrorCounts().get( "getBranch()" ) );
+    assertEquals( Long.valueOf( 1 ), metrics.getInvocationCounts().get( "openRepo(String)" ) );
+    assertEquals( Long.valueOf( 1 ), metrics.getErrorCounts().get( "openRepo(String)" ) );
+
+    metrics.reset();
+    assertTrue( metrics.getInvocationCounts().isEmpty() );
+  }
+
+  @Test
+  public void testHistogram() {
+    LogChannelInterface log = mock( LogChannelInterface.class );
+    VcsMetrics metrics = new VcsMetrics( log );
+    for ( int i = 0; i < 19; i++ ) {
+      metrics.record( "pull()", TimeUnit.MILLISECONDS.toNanos( 3 ), false );
+    }
+    metrics.record( "pull()", TimeUnit.MILLISECONDS.toNanos( 1500 ), false );
+
+    assertEquals( 5.0, metrics.getP95Millis().get( "pull()" ), 0 );
+    assertEquals( 1500.0, metrics.getMaxMillis().get( "pull()" ), 0 );
+    assertEquals( ( 19 * 3 + 1500 ) / 20.0, metrics.getMeanMillis().get( "pull()" ), 0.001 );
+    assertEquals( 1500.0, metrics.getOperations().get( "pull()" ).getPercentileMillis( 1.0 ), 0 );
+
+    // Only the slow one is logged
+    verify( log, times( 1 ) ).logBasic( anyString() );
+  }
+}